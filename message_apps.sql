@@ -17,7 +17,9 @@ CREATE TABLE friend_requests (
     status ENUM('pending','accepted','rejected') DEFAULT 'pending',
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     FOREIGN KEY (sender_id) REFERENCES users(user_id),
-    FOREIGN KEY (receiver_id) REFERENCES users(user_id)
+    FOREIGN KEY (receiver_id) REFERENCES users(user_id),
+    -- Serves the pending-request inbox and count without touching other receivers' rows
+    INDEX idx_friend_requests_inbox (receiver_id, status, created_at, request_id)
 );
 
 CREATE TABLE messages (
@@ -29,4 +31,14 @@ CREATE TABLE messages (
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     FOREIGN KEY (sender_id) REFERENCES users(user_id),
     FOREIGN KEY (receiver_id) REFERENCES users(user_id)
+);
+
+-- Both directions of every accepted friendship, so friend lookups are a primary key range scan
+CREATE TABLE friendships (
+    user_id INT NOT NULL,
+    friend_id INT NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (user_id, friend_id),
+    FOREIGN KEY (user_id) REFERENCES users(user_id),
+    FOREIGN KEY (friend_id) REFERENCES users(user_id)
 );
\ No newline at end of file
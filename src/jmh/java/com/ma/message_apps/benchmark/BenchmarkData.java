@@ -0,0 +1,132 @@
+package com.ma.message_apps.benchmark;
+
+import com.ma.message_apps.dto.CompactMessageDto;
+import com.ma.message_apps.dto.CompactMessageListDto;
+import com.ma.message_apps.dto.MessageDto;
+import com.ma.message_apps.dto.UserDto;
+import com.ma.message_apps.entity.Message;
+import com.ma.message_apps.entity.User;
+import com.ma.message_apps.enumDto.UserStatus;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Deterministic test data for the benchmarks
+ * Every generator takes its own fixed seed, so runs on different machines and releases measure
+ * the same inputs.
+ */
+final class BenchmarkData {
+
+    static final long SEED = 42;
+    // Fixed base time, so serialized sizes do not change between runs
+    private static final long BASE_MILLIS = 1_700_000_000_000L;
+    private static final UserStatus[] STATUSES = UserStatus.values();
+
+    private BenchmarkData() {
+    }
+
+    static User user(int id) {
+        User user = new User();
+        user.setUserId(id);
+        user.setUsername("user" + id);
+        user.setPasswordHash("$2a$10$abcdefghijklmnopqrstuuRKs9e6uC5Z8nQj8r0dN0vNQzDk9W5hS");
+        user.setEmail("user" + id + "@example.com");
+        user.setStatus(STATUSES[id % STATUSES.length]);
+        user.setCreatedAt(new Timestamp(BASE_MILLIS + id * 1000L));
+        return user;
+    }
+
+    static UserDto userDto(int id) {
+        return new UserDto(id, "user" + id, "user" + id + "@example.com", null,
+                LocalDateTime.of(2024, 1, 1, 12, 0).plusSeconds(id), null, STATUSES[id % STATUSES.length]);
+    }
+
+    static List<UserDto> userDtos(int count) {
+        List<UserDto> users = new ArrayList<>(count);
+        for (int id = 1; id <= count; id++) {
+            users.add(userDto(id));
+        }
+        return users;
+    }
+
+    /**
+     * Messages of one conversation between users 1 and 2, alternating senders
+     */
+    static List<Message> messages(int count) {
+        Random random = new Random(SEED);
+        User first = user(1);
+        User second = user(2);
+        List<Message> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            boolean fromFirst = i % 2 == 0;
+            messages.add(new Message(i + 1, fromFirst ? first : second, fromFirst ? second : first,
+                    text(random), i < count - 5, new Timestamp(BASE_MILLIS + i * 60_000L)));
+        }
+        return messages;
+    }
+
+    static List<MessageDto> messageDtos(int count) {
+        List<MessageDto> dtos = new ArrayList<>(count);
+        for (Message message : messages(count)) {
+            dtos.add(new MessageDto(message.getMessageId(), message.getSender(), message.getReceiver(),
+                    message.getMessageText(), message.getIsRead(), message.getCreatedAt()));
+        }
+        return dtos;
+    }
+
+    static CompactMessageListDto compactMessages(int count) {
+        List<CompactMessageDto> compact = new ArrayList<>(count);
+        for (Message message : messages(count)) {
+            compact.add(new CompactMessageDto(message.getMessageId(), message.getSender().getUserId(),
+                    message.getReceiver().getUserId(), message.getMessageText(), message.getIsRead(),
+                    message.getCreatedAt()));
+        }
+        Map<Integer, CompactMessageListDto.UserRef> users = new HashMap<>();
+        users.put(1, new CompactMessageListDto.UserRef("user1", STATUSES[1 % STATUSES.length]));
+        users.put(2, new CompactMessageListDto.UserRef("user2", STATUSES[2 % STATUSES.length]));
+        return new CompactMessageListDto(compact, users);
+    }
+
+    /**
+     * Friendship pairs (a, b) with a < b over users 1..userCount
+     * Uniform graphs give every user about {@code averageDegree} friends; skewed graphs connect
+     * most edges to a few hub users, whose friend lists run into the thousands.
+     */
+    static List<int[]> friendPairs(int userCount, int averageDegree, boolean skewed) {
+        Random random = new Random(SEED);
+        long edges = (long) userCount * averageDegree / 2;
+        int hubs = Math.max(1, userCount / 1000);
+        List<int[]> pairs = new ArrayList<>((int) edges);
+        for (long i = 0; i < edges; i++) {
+            int a = 1 + random.nextInt(userCount);
+            int b = skewed && random.nextInt(4) != 0
+                    ? 1 + random.nextInt(hubs)
+                    : 1 + random.nextInt(userCount);
+            if (a != b) {
+                pairs.add(new int[]{Math.min(a, b), Math.max(a, b)});
+            }
+        }
+        return pairs;
+    }
+
+    private static String text(Random random) {
+        int words = 3 + random.nextInt(20);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            int length = 2 + random.nextInt(8);
+            for (int j = 0; j < length; j++) {
+                text.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+        return text.toString();
+    }
+}
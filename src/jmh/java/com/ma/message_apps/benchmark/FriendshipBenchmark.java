@@ -0,0 +1,129 @@
+package com.ma.message_apps.benchmark;
+
+import com.ma.message_apps.cache.FriendshipGraph;
+import com.ma.message_apps.datasource.ReadYourWritesTracker;
+import com.ma.message_apps.repository.FriendshipRepository;
+import com.ma.message_apps.util.SortedIntArrays;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Friendship checks, friend lists and mutual-friend counts on the in-memory friendship graph
+ * The graph is loaded through its normal warm-up from generated pairs, for a uniform degree
+ * distribution and for one where a few hub users hold most friendships.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class FriendshipBenchmark {
+
+    private static final int QUERIES = 1024;
+
+    @Param({"100000"})
+    public int users;
+
+    @Param({"50"})
+    public int averageDegree;
+
+    @Param({"uniform", "skewed"})
+    public String distribution;
+
+    private FriendshipGraph graph;
+    private int[][] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<int[]> pairs = BenchmarkData.friendPairs(users, averageDegree, "skewed".equals(distribution));
+        FriendshipRepository repository = (FriendshipRepository) Proxy.newProxyInstance(
+                FriendshipRepository.class.getClassLoader(),
+                new Class<?>[]{FriendshipRepository.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("streamFriendPairs")) {
+                        return pairs.stream().map(pair -> new Object[]{pair[0], pair[1]});
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        ReadYourWritesTracker readYourWrites = new ReadYourWritesTracker(Duration.ofSeconds(5), "",
+                new StaticListableBeanFactory(Map.of("transactionManager", new NoTransactionManager()))
+                        .getBeanProvider(PlatformTransactionManager.class));
+        graph = new FriendshipGraph(repository, event -> { }, readYourWrites);
+        graph.warmUp();
+
+        // Half the queries are existing friendships, half random pairs
+        Random random = new Random(BenchmarkData.SEED);
+        queries = new int[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = i % 2 == 0
+                    ? pairs.get(random.nextInt(pairs.size()))
+                    : new int[]{1 + random.nextInt(users), 1 + random.nextInt(users)};
+        }
+    }
+
+    @Benchmark
+    public boolean areFriends() {
+        int[] query = nextQuery();
+        return graph.areFriends(query[0], query[1]);
+    }
+
+    @Benchmark
+    public int[] friendIds() {
+        return graph.getFriendIds(nextQuery()[0]);
+    }
+
+    @Benchmark
+    public int mutualFriendCount() {
+        int[] query = nextQuery();
+        return SortedIntArrays.intersectionSize(graph.getFriendIds(query[0]), graph.getFriendIds(query[1]));
+    }
+
+    private int[] nextQuery() {
+        int[] query = queries[next];
+        next = (next + 1) & (QUERIES - 1);
+        return query;
+    }
+
+    /**
+     * Runs the graph's read-only load without a database
+     */
+    private static final class NoTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.ma.message_apps.benchmark;
+
+import com.ma.message_apps.dto.MessageDto;
+import com.ma.message_apps.dto.UserDto;
+import com.ma.message_apps.entity.Message;
+import com.ma.message_apps.entity.User;
+import com.ma.message_apps.mapper.MessageConversion;
+import com.ma.message_apps.mapper.MessageConversionImpl;
+import com.ma.message_apps.mapper.UserConversion;
+import com.ma.message_apps.mapper.UserConversionImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MapStruct conversions between entities and DTOs, singly and for a 100-element list
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MappingBenchmark {
+
+    private final UserConversion userConversion = new UserConversionImpl();
+    private final MessageConversion messageConversion = new MessageConversionImpl();
+
+    private User user;
+    private UserDto userDto;
+    private Message message;
+    private List<User> users;
+    private List<Message> messages;
+
+    @Setup
+    public void setUp() {
+        user = BenchmarkData.user(1);
+        userDto = BenchmarkData.userDto(1);
+        messages = BenchmarkData.messages(100);
+        message = messages.get(0);
+        users = new ArrayList<>();
+        for (int id = 1; id <= 100; id++) {
+            users.add(BenchmarkData.user(id));
+        }
+    }
+
+    @Benchmark
+    public UserDto userToDto() {
+        return userConversion.toUserDto(user);
+    }
+
+    @Benchmark
+    public User dtoToUser() {
+        return userConversion.toUser(userDto);
+    }
+
+    @Benchmark
+    public MessageDto messageToDto() {
+        return messageConversion.toMessageDto(message);
+    }
+
+    @Benchmark
+    public List<UserDto> userListToDtos() {
+        List<UserDto> dtos = new ArrayList<>(users.size());
+        for (User each : users) {
+            dtos.add(userConversion.toUserDto(each));
+        }
+        return dtos;
+    }
+
+    @Benchmark
+    public List<MessageDto> messageListToDtos() {
+        List<MessageDto> dtos = new ArrayList<>(messages.size());
+        for (Message each : messages) {
+            dtos.add(messageConversion.toMessageDto(each));
+        }
+        return dtos;
+    }
+}
@@ -0,0 +1,96 @@
+package com.ma.message_apps.benchmark;
+
+import com.ma.message_apps.util.SearchTermIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * User search over the in-memory term index, by match kind
+ * Users are named {@code user<id>}, so exact, prefix and infix queries hit a known number of
+ * candidates at every index size. Emails have random ten-letter local parts, and the fuzzy query
+ * is one of them with a letter substituted, so it shares 5 of its 8 trigrams with its target.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int users;
+
+    private SearchTermIndex index;
+    private String exact;
+    private String prefix;
+    private String infix;
+    private String fuzzy;
+
+    @Setup
+    public void setUp() {
+        index = new SearchTermIndex();
+        Random random = new Random(BenchmarkData.SEED);
+        int id = users / 2 + 7;
+        String target = null;
+        for (int user = 1; user <= users; user++) {
+            String localPart = letters(random, 10);
+            index.put(user, "user" + user, localPart + "@example.com");
+            if (user == id) {
+                target = localPart;
+            }
+        }
+        exact = "user" + id;
+        prefix = "user" + id / 10;
+        infix = "er" + id;
+        char substituted = target.charAt(5) == 'z' ? 'a' : (char) (target.charAt(5) + 1);
+        fuzzy = target.substring(0, 5) + substituted + target.substring(6);
+
+        // Otherwise fuzzyMatch would only measure the no-match path
+        int fuzzyTarget = id;
+        if (index.search(fuzzy, 20).stream().noneMatch(hit -> hit.getId() == fuzzyTarget)) {
+            throw new IllegalStateException("Fuzzy query " + fuzzy + " does not find user " + id);
+        }
+    }
+
+    @Benchmark
+    public List<SearchTermIndex.Hit> exactMatch() {
+        return index.search(exact, 20);
+    }
+
+    @Benchmark
+    public List<SearchTermIndex.Hit> prefixMatch() {
+        return index.search(prefix, 20);
+    }
+
+    @Benchmark
+    public List<SearchTermIndex.Hit> infixMatch() {
+        return index.search(infix, 20);
+    }
+
+    @Benchmark
+    public List<SearchTermIndex.Hit> fuzzyMatch() {
+        return index.search(fuzzy, 20);
+    }
+
+    private static String letters(Random random, int length) {
+        char[] letters = new char[length];
+        for (int i = 0; i < length; i++) {
+            letters[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(letters);
+    }
+}
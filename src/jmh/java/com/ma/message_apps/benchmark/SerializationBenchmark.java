@@ -0,0 +1,99 @@
+package com.ma.message_apps.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.ma.message_apps.dto.CompactMessageListDto;
+import com.ma.message_apps.dto.MessageDto;
+import com.ma.message_apps.dto.UserDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson encoding and decoding of API responses in each supported format
+ * Mappers come from Spring's builder with the same factories as {@code BinaryFormatConfig}, so
+ * modules and date handling match the running application. Full message lists embed both users
+ * in every message; compact lists carry IDs and a user dictionary.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    @Param({"50", "1000"})
+    public int size;
+
+    private ObjectMapper mapper;
+    private List<MessageDto> messages;
+    private CompactMessageListDto compactMessages;
+    private List<UserDto> users;
+    private byte[] encodedMessages;
+    private byte[] encodedCompactMessages;
+    private byte[] encodedUsers;
+
+    @Setup
+    public void setUp() throws IOException {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        mapper = switch (format) {
+            case "cbor" -> builder.factory(new CBORFactory()).build();
+            case "smile" -> builder.factory(new SmileFactory()).build();
+            default -> builder.build();
+        };
+        messages = BenchmarkData.messageDtos(size);
+        compactMessages = BenchmarkData.compactMessages(size);
+        users = BenchmarkData.userDtos(size);
+        encodedMessages = mapper.writeValueAsBytes(messages);
+        encodedCompactMessages = mapper.writeValueAsBytes(compactMessages);
+        encodedUsers = mapper.writeValueAsBytes(users);
+    }
+
+    @Benchmark
+    public byte[] writeMessages() throws IOException {
+        return mapper.writeValueAsBytes(messages);
+    }
+
+    @Benchmark
+    public byte[] writeCompactMessages() throws IOException {
+        return mapper.writeValueAsBytes(compactMessages);
+    }
+
+    @Benchmark
+    public byte[] writeUsers() throws IOException {
+        return mapper.writeValueAsBytes(users);
+    }
+
+    @Benchmark
+    public MessageDto[] readMessages() throws IOException {
+        return mapper.readValue(encodedMessages, MessageDto[].class);
+    }
+
+    @Benchmark
+    public CompactMessageListDto readCompactMessages() throws IOException {
+        return mapper.readValue(encodedCompactMessages, CompactMessageListDto.class);
+    }
+
+    @Benchmark
+    public UserDto[] readUsers() throws IOException {
+        return mapper.readValue(encodedUsers, UserDto[].class);
+    }
+}
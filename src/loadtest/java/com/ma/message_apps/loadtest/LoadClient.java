@@ -0,0 +1,164 @@
+package com.ma.message_apps.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HTTP client shared by all simulated users, recording every call against its endpoint
+ * Calls are named by endpoint template, e.g. {@code GET /api/messages/{u1}/{u2}}, so the report
+ * groups them the way the API is documented.
+ */
+class LoadClient {
+
+    /**
+     * Outcome counts and latencies of one endpoint
+     */
+    static class EndpointStats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder ok = new LongAdder();
+        final LongAdder notModified = new LongAdder();
+        final LongAdder clientErrors = new LongAdder();
+        final LongAdder serverErrors = new LongAdder();
+        final LongAdder failures = new LongAdder();
+
+        long requests() {
+            return ok.sum() + notModified.sum() + clientErrors.sum() + serverErrors.sum() + failures.sum();
+        }
+    }
+
+    /**
+     * Status and body of a call; status 0 when no response arrived
+     */
+    record Result(int status, byte[] body, HttpResponse<byte[]> response) {
+
+        boolean isSuccess() {
+            return status >= 200 && status < 400;
+        }
+
+        Optional<String> header(String name) {
+            return response == null ? Optional.empty() : response.headers().firstValue(name);
+        }
+    }
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final HttpClient http;
+    private final URI baseUri;
+    private final Duration timeout;
+    private final Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+    private volatile boolean recording;
+
+    LoadClient(URI baseUri, Duration timeout) {
+        this.baseUri = baseUri;
+        this.timeout = timeout;
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    /**
+     * Start recording; calls made before, e.g. while seeding data, are not reported
+     */
+    void startRecording() {
+        stats.clear();
+        recording = true;
+    }
+
+    void stopRecording() {
+        recording = false;
+    }
+
+    Map<String, EndpointStats> snapshot() {
+        return new TreeMap<>(stats);
+    }
+
+    HttpRequest.Builder request(String path, String sessionCookie) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(baseUri.resolve(path))
+                .timeout(timeout)
+                .header("Accept", "application/json");
+        if (sessionCookie != null) {
+            builder.header("Cookie", sessionCookie);
+        }
+        return builder;
+    }
+
+    static HttpRequest.BodyPublisher form(Map<String, String> fields) {
+        StringBuilder body = new StringBuilder();
+        fields.forEach((name, value) -> {
+            if (!body.isEmpty()) {
+                body.append('&');
+            }
+            body.append(name).append('=').append(URLEncoder.encode(value, StandardCharsets.UTF_8));
+        });
+        return HttpRequest.BodyPublishers.ofString(body.toString());
+    }
+
+    static HttpRequest.BodyPublisher json(Object value) {
+        try {
+            return HttpRequest.BodyPublishers.ofByteArray(JSON.writeValueAsBytes(value));
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    static JsonNode parse(Result result) {
+        try {
+            return result.body().length == 0 ? JSON.nullNode() : JSON.readTree(result.body());
+        } catch (IOException e) {
+            return JSON.nullNode();
+        }
+    }
+
+    /**
+     * Send a request and record it under an endpoint name
+     */
+    Result call(String endpoint, HttpRequest request) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<byte[]> response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            record(endpoint, response.statusCode(), System.nanoTime() - start);
+            return new Result(response.statusCode(), response.body(), response);
+        } catch (IOException e) {
+            record(endpoint, 0, System.nanoTime() - start);
+            return new Result(0, new byte[0], null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Result(0, new byte[0], null);
+        }
+    }
+
+    private void record(String endpoint, int status, long nanos) {
+        if (!recording) {
+            return;
+        }
+        EndpointStats endpointStats = stats.computeIfAbsent(endpoint, name -> new EndpointStats());
+        endpointStats.latency.record(nanos / 1000);
+        if (status == 0) {
+            endpointStats.failures.increment();
+        } else if (status == 304) {
+            endpointStats.notModified.increment();
+        } else if (status >= 500) {
+            endpointStats.serverErrors.increment();
+        } else if (status >= 400) {
+            endpointStats.clientErrors.increment();
+        } else {
+            endpointStats.ok.increment();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.ma.message_apps.loadtest;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Prints the per-endpoint table at the end of a run
+ * Latencies are in milliseconds; 304s count as successes but are listed separately, since a poll
+ * answered from the ETag costs far less than one that builds a response.
+ */
+final class LoadReport {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String ROW = "%-45s %9s %9s %8s %7s %7s %7s %8s %8s %8s %8s %8s%n";
+
+    private LoadReport() {
+    }
+
+    static void print(Map<String, LoadClient.EndpointStats> stats, Duration elapsed) {
+        double seconds = elapsed.toNanos() / 1e9;
+        System.out.println();
+        System.out.printf(Locale.ROOT, "Results over %.1fs%n", seconds);
+        System.out.printf(Locale.ROOT, ROW, "endpoint", "requests", "req/s", "304", "4xx", "5xx", "failed",
+                "p50", "p90", "p99", "p99.9", "max");
+
+        long requests = 0;
+        long notModified = 0;
+        long clientErrors = 0;
+        long serverErrors = 0;
+        long failures = 0;
+        for (Map.Entry<String, LoadClient.EndpointStats> entry : stats.entrySet()) {
+            LoadClient.EndpointStats endpoint = entry.getValue();
+            LatencyHistogram latency = endpoint.latency;
+            System.out.printf(Locale.ROOT, ROW, entry.getKey(),
+                    endpoint.requests(),
+                    String.format(Locale.ROOT, "%.1f", endpoint.requests() / seconds),
+                    endpoint.notModified.sum(),
+                    endpoint.clientErrors.sum(),
+                    endpoint.serverErrors.sum(),
+                    endpoint.failures.sum(),
+                    millis(latency.percentile(PERCENTILES[0])),
+                    millis(latency.percentile(PERCENTILES[1])),
+                    millis(latency.percentile(PERCENTILES[2])),
+                    millis(latency.percentile(PERCENTILES[3])),
+                    millis(latency.max()));
+            requests += endpoint.requests();
+            notModified += endpoint.notModified.sum();
+            clientErrors += endpoint.clientErrors.sum();
+            serverErrors += endpoint.serverErrors.sum();
+            failures += endpoint.failures.sum();
+        }
+        System.out.printf(Locale.ROOT, ROW, "total", requests, String.format(Locale.ROOT, "%.1f", requests / seconds),
+                notModified, clientErrors, serverErrors, failures, "", "", "", "", "");
+    }
+
+    private static String millis(long micros) {
+        return String.format(Locale.ROOT, "%.2f", micros / 1000.0);
+    }
+}
@@ -0,0 +1,343 @@
+package com.ma.message_apps.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.ma.message_apps.MessageAppsApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Chat traffic load generator
+ * Boots the app on an in-memory H2 database (unless {@code --base-url} points at a running
+ * instance), registers the simulated users, befriends each with its neighbours, then runs one
+ * {@link SimulatedUser} per user on a virtual thread and prints throughput and latency percentiles
+ * per endpoint. With {@code --dataset-users} the users come from a generated dataset instead, see
+ * {@code DatasetGenerator}. Run it with {@code mvn -P loadtest test-compile exec:exec -Dloadtest.args="..."}.
+ * <p>
+ * Options, all {@code --name=value}:
+ * <ul>
+ *   <li>{@code users} simulated users (1000)</li>
+ *   <li>{@code duration} measured run time after ramp-up starts (60s)</li>
+ *   <li>{@code ramp-up} window over which users log in (10s)</li>
+ *   <li>{@code friends} friends per user when seeding (10)</li>
+ *   <li>{@code send-every}, {@code switch-chat-every}, {@code friend-request-every} mean time
+ *       between a user's messages, chat switches and friend requests (20s, 60s, 5m)</li>
+ *   <li>{@code profile} Spring profiles for the embedded app, e.g. {@code virtual-threads}</li>
+ *   <li>{@code bcrypt-cost} password hashing cost for the embedded app (4)</li>
+ *   <li>{@code dataset-users} size of the generated dataset to simulate users from; the embedded
+ *       app generates it, a running instance must have generated it with the default prefix and
+ *       password</li>
+ *   <li>{@code send-async} send messages through {@code /api/messages/send-async} instead of
+ *       {@code /api/messages/send} (false)</li>
+ *   <li>{@code base-url} run against an already running instance instead</li>
+ * </ul>
+ */
+public final class LoadTest {
+
+    static final long SEED = 42;
+    static final String PASSWORD = "loadtest-secret";
+    // Defaults of app.dataset.username-prefix and app.dataset.password
+    private static final String DATASET_PREFIX = "user";
+    private static final String DATASET_PASSWORD = "password";
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final int SEED_CONCURRENCY = 32;
+    private static final long PROGRESS_INTERVAL_SECONDS = 10;
+
+    /**
+     * Parsed command line options
+     */
+    record Options(int users, Duration duration, Duration rampUp, int friends, Duration sendEvery,
+                   Duration switchChatEvery, Duration friendRequestEvery, String profile, int bcryptCost,
+                   int datasetUsers, boolean sendAsync, String baseUrl) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                if (!arg.startsWith("--") || !arg.contains("=")) {
+                    throw new IllegalArgumentException("Expected --name=value but got " + arg);
+                }
+                int split = arg.indexOf('=');
+                values.put(arg.substring(2, split), arg.substring(split + 1));
+            }
+            Options options = new Options(
+                    Integer.parseInt(values.getOrDefault("users", "1000")),
+                    DurationStyle.detectAndParse(values.getOrDefault("duration", "60s")),
+                    DurationStyle.detectAndParse(values.getOrDefault("ramp-up", "10s")),
+                    Integer.parseInt(values.getOrDefault("friends", "10")),
+                    DurationStyle.detectAndParse(values.getOrDefault("send-every", "20s")),
+                    DurationStyle.detectAndParse(values.getOrDefault("switch-chat-every", "60s")),
+                    DurationStyle.detectAndParse(values.getOrDefault("friend-request-every", "5m")),
+                    values.getOrDefault("profile", ""),
+                    Integer.parseInt(values.getOrDefault("bcrypt-cost", "4")),
+                    Integer.parseInt(values.getOrDefault("dataset-users", "0")),
+                    Boolean.parseBoolean(values.getOrDefault("send-async", "false")),
+                    values.get("base-url"));
+            if (options.users() < 2) {
+                throw new IllegalArgumentException("--users must be at least 2");
+            }
+            if (options.datasetUsers() > 0 && options.datasetUsers() < options.users()) {
+                throw new IllegalArgumentException("--dataset-users must be at least --users");
+            }
+            return options;
+        }
+    }
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        ConfigurableApplicationContext context = options.baseUrl() == null ? boot(options) : null;
+        try {
+            URI baseUri = URI.create(context == null
+                    ? options.baseUrl()
+                    : "http://localhost:" + ((ServletWebServerApplicationContext) context).getWebServer().getPort());
+            run(new LoadClient(baseUri, REQUEST_TIMEOUT), options);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+        System.exit(0);
+    }
+
+    private static ConfigurableApplicationContext boot(Options options) {
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        List<String> properties = new ArrayList<>(List.of(
+                "--spring.datasource.url=jdbc:h2:mem:loadtest;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.show-sql=false",
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--app.password.bcrypt-cost=" + options.bcryptCost(),
+                "--logging.level.root=WARN",
+                "--logging.level.com.ma.message_apps=WARN",
+                "--logging.level.org.hibernate.SQL=WARN",
+                "--logging.level.org.hibernate.type.descriptor.sql=WARN"));
+        if (!options.profile().isEmpty()) {
+            properties.add("--spring.profiles.active=" + options.profile());
+        }
+        if (options.datasetUsers() > 0) {
+            properties.add("--app.dataset.generate=true");
+            properties.add("--app.dataset.users=" + options.datasetUsers());
+            properties.add("--logging.level.com.ma.message_apps.dataset=INFO");
+        }
+        System.out.println("Starting embedded app" + (options.profile().isEmpty() ? "" : " with profile " + options.profile()));
+        return new SpringApplicationBuilder(MessageAppsApplication.class).run(properties.toArray(String[]::new));
+    }
+
+    private static void run(LoadClient client, Options options) throws InterruptedException {
+        String[] usernames = new String[options.users()];
+        int[] userIds;
+        String password;
+        if (options.datasetUsers() > 0) {
+            userIds = pickDatasetUsers(client, options, usernames);
+            password = DATASET_PASSWORD;
+        } else {
+            long seedStart = System.nanoTime();
+            String prefix = "lt" + Long.toString(System.currentTimeMillis() % 1_000_000, 36) + "_";
+            for (int i = 0; i < usernames.length; i++) {
+                usernames[i] = prefix + i;
+            }
+            userIds = registerUsers(client, usernames);
+            befriendNeighbours(client, userIds, options.friends());
+            password = PASSWORD;
+            System.out.printf(Locale.ROOT, "Seeded %d users with about %d friends each in %.1fs%n",
+                    userIds.length, options.friends(), (System.nanoTime() - seedStart) / 1e9);
+        }
+
+        client.startRecording();
+        long start = System.nanoTime();
+        long end = start + options.duration().toNanos();
+        long rampUp = Math.min(options.rampUp().toNanos(), options.duration().toNanos());
+        Random random = new Random(SEED);
+        try (ExecutorService users = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < userIds.length; i++) {
+                long startAt = start + (rampUp == 0 ? 0 : (long) (random.nextDouble() * rampUp));
+                users.submit(new SimulatedUser(client, options, userIds[i], usernames[i], password, userIds, startAt, end));
+            }
+            users.shutdown();
+            while (!users.awaitTermination(PROGRESS_INTERVAL_SECONDS, TimeUnit.SECONDS)) {
+                printProgress(client, start);
+            }
+        }
+        client.stopRecording();
+        LoadReport.print(client.snapshot(), Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * Register the users, retrying requests that were shed with a 503, and return their ids
+     */
+    private static int[] registerUsers(LoadClient client, String[] usernames) throws InterruptedException {
+        int[] userIds = new int[usernames.length];
+        forEachConcurrently(usernames.length, i -> {
+            Map<String, String> body = Map.of(
+                    "username", usernames[i],
+                    "email", usernames[i] + "@loadtest.local",
+                    "passwordHash", PASSWORD);
+            LoadClient.Result result = withRetry(() -> client.call("POST /api/auth/register",
+                    client.request("/api/auth/register", null)
+                            .header("Content-Type", "application/json")
+                            .POST(LoadClient.json(body))
+                            .build()));
+            userIds[i] = LoadClient.parse(result).path("user").path("userId").asInt();
+            if (userIds[i] == 0) {
+                throw new IllegalStateException("Registering " + usernames[i] + " failed with status " + result.status());
+            }
+        });
+        return userIds;
+    }
+
+    /**
+     * Pick users spread evenly over a generated dataset, so popular and quiet accounts are both
+     * simulated, and return their ids
+     * Generated users have consecutive ids, so only the first one is looked up.
+     */
+    private static int[] pickDatasetUsers(LoadClient client, Options options, String[] usernames) {
+        LoadClient.Result first = client.call("GET /api/friends/find",
+                client.request("/api/friends/find?query=" + DATASET_PREFIX + 1, null).GET().build());
+        int firstId = LoadClient.parse(first).path("user").path("userId").asInt();
+        if (firstId == 0) {
+            throw new IllegalStateException("No generated dataset found (status " + first.status() + ")");
+        }
+        int[] userIds = new int[usernames.length];
+        for (int i = 0; i < usernames.length; i++) {
+            int index = (int) ((long) i * options.datasetUsers() / usernames.length);
+            usernames[i] = DATASET_PREFIX + (index + 1);
+            userIds[i] = firstId + index;
+        }
+        System.out.printf(Locale.ROOT, "Simulating %d of %d generated users%n", usernames.length, options.datasetUsers());
+        return userIds;
+    }
+
+    /**
+     * Connect every user to the next friends/2 users around a ring, so each ends up with about
+     * {@code friends} friends and every conversation has two active participants
+     * The send endpoints do not return request ids, so all requests are sent first and each
+     * receiver then accepts its inbox in bulk.
+     */
+    private static void befriendNeighbours(LoadClient client, int[] userIds, int friends) throws InterruptedException {
+        int span = Math.min(Math.max(friends / 2, 0), (userIds.length - 1) / 2);
+        if (span == 0) {
+            return;
+        }
+        forEachConcurrently(userIds.length, i -> {
+            for (int k = 1; k <= span; k++) {
+                String query = "?fromUserId=" + userIds[i] + "&toUserId=" + userIds[(i + k) % userIds.length];
+                withRetry(() -> client.call("POST /api/friend-requests/send",
+                        client.request("/api/friend-requests/send" + query, null)
+                                .POST(HttpRequest.BodyPublishers.noBody())
+                                .build()));
+            }
+        });
+        forEachConcurrently(userIds.length, i -> {
+            while (true) {
+                LoadClient.Result inbox = withRetry(() -> client.call("GET /api/friend-requests/{userId}",
+                        client.request("/api/friend-requests/" + userIds[i] + "?limit=" + (2 * span), null)
+                                .GET()
+                                .build()));
+                List<Integer> requestIds = new ArrayList<>();
+                for (JsonNode pending : LoadClient.parse(inbox).path("requests")) {
+                    requestIds.add(pending.path("requestId").asInt());
+                }
+                if (requestIds.isEmpty()) {
+                    return;
+                }
+                LoadClient.Result accepted = withRetry(() -> client.call("POST /api/friend-requests/bulk/accept",
+                        client.request("/api/friend-requests/bulk/accept", null)
+                                .header("Content-Type", "application/json")
+                                .POST(LoadClient.json(requestIds))
+                                .build()));
+                if (!accepted.isSuccess()) {
+                    throw new IllegalStateException("Accepting requests of user " + userIds[i]
+                            + " failed with status " + accepted.status());
+                }
+            }
+        });
+    }
+
+    /**
+     * Log in with a prepared request and return the session cookie, or null if login failed
+     * Login always answers with a redirect; only a redirect to the dashboard means success.
+     */
+    static String login(LoadClient client, HttpRequest request) {
+        LoadClient.Result result = withRetry(() -> client.call("POST /api/auth/login", request));
+        boolean success = result.header("Location").map(location -> location.endsWith("/dashboard")).orElse(false);
+        return success
+                ? result.header("Set-Cookie").map(cookie -> cookie.split(";", 2)[0]).orElse(null)
+                : null;
+    }
+
+    private static LoadClient.Result withRetry(Supplier<LoadClient.Result> call) {
+        LoadClient.Result result = call.get();
+        for (int attempt = 1; attempt < 5 && (result.status() == 503 || result.status() == 0); attempt++) {
+            try {
+                Thread.sleep(100L << attempt);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return result;
+            }
+            result = call.get();
+        }
+        return result;
+    }
+
+    private static void forEachConcurrently(int count, IntConsumer task) throws InterruptedException {
+        Semaphore permits = new Semaphore(SEED_CONCURRENCY);
+        AtomicInteger failures = new AtomicInteger();
+        AtomicReference<RuntimeException> firstError = new AtomicReference<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < count; i++) {
+                int index = i;
+                permits.acquire();
+                executor.submit(() -> {
+                    try {
+                        task.accept(index);
+                    } catch (RuntimeException e) {
+                        failures.incrementAndGet();
+                        firstError.compareAndSet(null, e);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        }
+        if (failures.get() > 0) {
+            throw new IllegalStateException(failures.get() + " seeding tasks failed", firstError.get());
+        }
+    }
+
+    private static void printProgress(LoadClient client, long start) {
+        long requests = 0;
+        long errors = 0;
+        for (LoadClient.EndpointStats stats : client.snapshot().values()) {
+            requests += stats.requests();
+            errors += stats.clientErrors.sum() + stats.serverErrors.sum() + stats.failures.sum();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf(Locale.ROOT, "%6.0fs  %,d requests  %,.0f req/s  %,d errors%n",
+                seconds, requests, requests / seconds, errors);
+    }
+}
@@ -0,0 +1,211 @@
+package com.ma.message_apps.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One dashboard user, doing what dashboard.js does on a timer
+ * After logging in the user loads their profile, contacts and pending request count, then:
+ * <ul>
+ *   <li>refreshes contacts with presence and the pending request count every 5s</li>
+ *   <li>polls the open chat in the compact format every 3s</li>
+ *   <li>sends a message to the open chat, through the async endpoint if asked, switches chats and sends friend requests at random
+ *       intervals around the configured means</li>
+ *   <li>accepts pending requests it sees on a contacts refresh</li>
+ * </ul>
+ * Polls send the last ETag they received, like a browser revalidating, so unchanged resources
+ * come back as 304s.
+ */
+class SimulatedUser implements Runnable {
+
+    private static final long CONTACTS_REFRESH_NANOS = Duration.ofSeconds(5).toNanos();
+    private static final long CHAT_POLL_NANOS = Duration.ofSeconds(3).toNanos();
+
+    private final LoadClient client;
+    private final LoadTest.Options options;
+    private final int userId;
+    private final String username;
+    private final String password;
+    private final int[] userIds;
+    private final long startAt;
+    private final long endAt;
+    private final Random random;
+    private final Map<String, String> etags = new HashMap<>();
+
+    private String sessionCookie;
+    private List<Integer> friends = new ArrayList<>();
+    private int openChat;
+
+    SimulatedUser(LoadClient client, LoadTest.Options options, int userId, String username, String password, int[] userIds,
+                  long startAt, long endAt) {
+        this.client = client;
+        this.options = options;
+        this.userId = userId;
+        this.username = username;
+        this.password = password;
+        this.userIds = userIds;
+        this.startAt = startAt;
+        this.endAt = endAt;
+        this.random = new Random(LoadTest.SEED + userId);
+    }
+
+    @Override
+    public void run() {
+        sleepUntil(startAt);
+        if (!login() || System.nanoTime() >= endAt) {
+            return;
+        }
+        get("GET /api/auth/me", "/api/auth/me", false);
+        refreshContacts();
+        openRandomChat();
+
+        long now = System.nanoTime();
+        long contactsAt = now + CONTACTS_REFRESH_NANOS;
+        long pollAt = now + CHAT_POLL_NANOS;
+        long sendAt = now + randomDelay(options.sendEvery());
+        long switchAt = now + randomDelay(options.switchChatEvery());
+        long requestAt = now + randomDelay(options.friendRequestEvery());
+
+        while (!Thread.currentThread().isInterrupted()) {
+            long next = Math.min(Math.min(contactsAt, pollAt), Math.min(sendAt, Math.min(switchAt, requestAt)));
+            if (next >= endAt) {
+                break;
+            }
+            sleepUntil(next);
+            now = System.nanoTime();
+            if (now >= contactsAt) {
+                refreshContacts();
+                contactsAt += CONTACTS_REFRESH_NANOS;
+            }
+            if (now >= pollAt) {
+                pollChat();
+                pollAt += CHAT_POLL_NANOS;
+            }
+            if (now >= sendAt) {
+                sendMessage();
+                sendAt = now + randomDelay(options.sendEvery());
+            }
+            if (now >= switchAt) {
+                openRandomChat();
+                switchAt = now + randomDelay(options.switchChatEvery());
+            }
+            if (now >= requestAt) {
+                sendFriendRequest();
+                requestAt = now + randomDelay(options.friendRequestEvery());
+            }
+        }
+    }
+
+    private boolean login() {
+        HttpRequest request = client.request("/api/auth/login", null)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(LoadClient.form(Map.of("username", username, "passwordHash", password)))
+                .build();
+        sessionCookie = LoadTest.login(client, request);
+        return sessionCookie != null;
+    }
+
+    private void refreshContacts() {
+        LoadClient.Result list = get("GET /api/friends/list?include=presence", "/api/friends/list?include=presence", true);
+        if (list.status() == 200) {
+            List<Integer> ids = new ArrayList<>();
+            for (JsonNode friend : LoadClient.parse(list).path("friends")) {
+                ids.add(friend.path("userId").asInt());
+            }
+            friends = ids;
+        }
+        LoadClient.Result count = get("GET /api/friends/requests/count", "/api/friends/requests/count", false);
+        if (LoadClient.parse(count).path("count").asInt() > 0) {
+            acceptPendingRequests();
+        }
+    }
+
+    private void acceptPendingRequests() {
+        LoadClient.Result inbox = get("GET /api/friends/requests", "/api/friends/requests", false);
+        for (JsonNode pending : LoadClient.parse(inbox).path("requests")) {
+            int requestId = pending.path("requestId").asInt();
+            if (requestId > 0) {
+                post("POST /api/friends/request/{id}/accept", "/api/friends/request/" + requestId + "/accept", null);
+            }
+        }
+    }
+
+    private void openRandomChat() {
+        if (friends.isEmpty()) {
+            openChat = 0;
+            return;
+        }
+        openChat = friends.get(random.nextInt(friends.size()));
+        pollChat();
+    }
+
+    private void pollChat() {
+        if (openChat > 0) {
+            get("GET /api/messages/{u1}/{u2}?format=compact",
+                    "/api/messages/" + userId + "/" + openChat + "?format=compact", true);
+        }
+    }
+
+    private void sendMessage() {
+        if (openChat > 0) {
+            String path = options.sendAsync() ? "/api/messages/send-async" : "/api/messages/send";
+            post("POST " + path, path, Map.of(
+                    "toUserId", String.valueOf(openChat),
+                    "content", "message " + random.nextInt(1_000_000) + " from " + username));
+        }
+    }
+
+    private void sendFriendRequest() {
+        int target = userIds[random.nextInt(userIds.length)];
+        if (target != userId && !friends.contains(target)) {
+            post("POST /api/friends/request", "/api/friends/request", Map.of(
+                    "fromUserId", String.valueOf(userId),
+                    "toUserId", String.valueOf(target)));
+        }
+    }
+
+    private LoadClient.Result get(String endpoint, String path, boolean conditional) {
+        HttpRequest.Builder builder = client.request(path, sessionCookie).GET();
+        String etag = conditional ? etags.get(path) : null;
+        if (etag != null) {
+            builder.header("If-None-Match", etag);
+        }
+        LoadClient.Result result = client.call(endpoint, builder.build());
+        if (conditional && result.status() == 200) {
+            result.header("ETag").ifPresent(tag -> etags.put(path, tag));
+        }
+        return result;
+    }
+
+    private void post(String endpoint, String path, Map<String, String> form) {
+        HttpRequest.Builder builder = client.request(path, sessionCookie);
+        if (form == null) {
+            builder.POST(HttpRequest.BodyPublishers.noBody());
+        } else {
+            builder.header("Content-Type", "application/x-www-form-urlencoded").POST(LoadClient.form(form));
+        }
+        client.call(endpoint, builder.build());
+    }
+
+    /**
+     * Exponentially distributed delay around a mean, like independent user actions
+     */
+    private long randomDelay(Duration mean) {
+        return (long) (-Math.log(1 - random.nextDouble()) * mean.toNanos());
+    }
+
+    private static void sleepUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0 && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+}
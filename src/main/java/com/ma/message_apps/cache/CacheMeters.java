@@ -0,0 +1,24 @@
+package com.ma.message_apps.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Meters shared by the hand-written caches, named like Micrometer's Caffeine cache metrics
+ */
+final class CacheMeters {
+
+    private CacheMeters() {
+    }
+
+    /**
+     * Counter of lookups with one result, {@code hit} or {@code miss}
+     */
+    static Counter gets(MeterRegistry registry, String cache, String result) {
+        return Counter.builder("cache.gets")
+                .tag("cache", cache)
+                .tag("result", result)
+                .description("The number of times cache lookup methods have returned a cached (hit) or uncached (miss) value")
+                .register(registry);
+    }
+}
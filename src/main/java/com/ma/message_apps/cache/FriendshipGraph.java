@@ -0,0 +1,290 @@
+package com.ma.message_apps.cache;
+
+import com.ma.message_apps.config.WarmupTask;
+import com.ma.message_apps.datasource.ReadYourWritesTracker;
+import com.ma.message_apps.event.FriendshipChangedEvent;
+import com.ma.message_apps.event.FriendshipGraphLoadedEvent;
+import com.ma.message_apps.event.ListenerOrder;
+import com.ma.message_apps.repository.FriendshipRepository;
+import com.ma.message_apps.util.IntHashSet;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory graph of accepted friendships
+ * Each user's friends are held in a primitive {@link IntHashSet} indexed by user ID,
+ * so friendship checks are O(1) and friend lists are answered without a database query.
+ * The graph is loaded once at startup from the friendships edge table and kept current
+ * through {@link FriendshipChangedEvent}s;
+ * until loading finishes {@link #isReady()} returns false and callers fall back to the database.
+ */
+@Component
+@Slf4j
+public class FriendshipGraph implements WarmupTask, SmartInitializingSingleton {
+
+    private static final int[] NO_FRIENDS = new int[0];
+
+    private final FriendshipRepository friendshipRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ReadYourWritesTracker readYourWrites;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private IntHashSet[] adjacency = new IntHashSet[0];
+    private int edgeCount;
+    private boolean loading;
+    private volatile boolean ready;
+
+    // Changes seen while the initial load is running, replayed once it completes
+    private final List<FriendshipChangedEvent> pendingChanges = new ArrayList<>();
+
+    @Autowired
+    public FriendshipGraph(
+            FriendshipRepository friendshipRepository,
+            ApplicationEventPublisher eventPublisher,
+            ReadYourWritesTracker readYourWrites) {
+        this.friendshipRepository = friendshipRepository;
+        this.eventPublisher = eventPublisher;
+        this.readYourWrites = readYourWrites;
+    }
+
+    @Override
+    public String getName() {
+        return "friendship-graph";
+    }
+
+    /**
+     * Backfill the friendships table from accepted friend requests the first time it is empty
+     * Runs before the web server starts so no new friendship can slip in between the check and the insert.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (friendshipRepository.findAnyUserIds(PageRequest.of(0, 1)).isEmpty()) {
+            int rows = friendshipRepository.backfillFromAcceptedRequests();
+            log.info("Backfilled {} friendship rows from accepted friend requests", rows);
+        }
+    }
+
+    /**
+     * Load all friendships from the primary database
+     */
+    @Override
+    public void warmUp() {
+        lock.writeLock().lock();
+        try {
+            loading = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        IntHashSet[] loaded;
+        int loadedEdges;
+        try {
+            loaded = readYourWrites.readFromPrimary(this::loadFriendPairs);
+            loadedEdges = countEdges(loaded);
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                loading = false;
+                pendingChanges.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            adjacency = loaded;
+            edgeCount = loadedEdges;
+            for (FriendshipChangedEvent change : pendingChanges) {
+                applyLocked(change);
+            }
+            pendingChanges.clear();
+            loading = false;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Friendship graph loaded with {} friendships", loadedEdges);
+        eventPublisher.publishEvent(new FriendshipGraphLoadedEvent(loadedEdges));
+    }
+
+    /**
+     * Apply friendship changes once the transaction that produced them has committed
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(ListenerOrder.APPLY)
+    public void onFriendshipChanged(FriendshipChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (!ready) {
+                if (loading) {
+                    pendingChanges.add(event);
+                }
+                return;
+            }
+            applyLocked(event);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Whether the initial load has completed and queries can be answered from memory
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Check whether two users are friends
+     */
+    public boolean areFriends(int userId1, int userId2) {
+        lock.readLock().lock();
+        try {
+            IntHashSet friends = userId1 > 0 && userId1 < adjacency.length ? adjacency[userId1] : null;
+            return friends != null && friends.contains(userId2);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the IDs of a user's friends in ascending order
+     */
+    public int[] getFriendIds(int userId) {
+        lock.readLock().lock();
+        try {
+            IntHashSet friends = userId > 0 && userId < adjacency.length ? adjacency[userId] : null;
+            return friends == null ? NO_FRIENDS : friends.toSortedArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of friends a user has
+     */
+    public int getFriendCount(int userId) {
+        lock.readLock().lock();
+        try {
+            IntHashSet friends = userId > 0 && userId < adjacency.length ? adjacency[userId] : null;
+            return friends == null ? 0 : friends.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copy the graph into sorted friend ID arrays indexed by user ID
+     * The copy is taken under the read lock and can be traversed freely afterwards;
+     * users without friends map to an empty array.
+     */
+    public int[][] snapshot() {
+        lock.readLock().lock();
+        try {
+            int[][] copy = new int[adjacency.length][];
+            for (int userId = 0; userId < adjacency.length; userId++) {
+                copy[userId] = adjacency[userId] == null ? NO_FRIENDS : adjacency[userId].toSortedArray();
+            }
+            return copy;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Total number of friendships held in the graph
+     */
+    public int getEdgeCount() {
+        lock.readLock().lock();
+        try {
+            return edgeCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private IntHashSet[] loadFriendPairs() {
+        IntHashSet[] graph = new IntHashSet[0];
+        try (Stream<Object[]> pairs = friendshipRepository.streamFriendPairs()) {
+            for (Object[] pair : (Iterable<Object[]>) pairs::iterator) {
+                int a = (Integer) pair[0];
+                int b = (Integer) pair[1];
+                graph = ensureCapacity(graph, Math.max(a, b));
+                link(graph, a, b);
+            }
+        }
+        return graph;
+    }
+
+    private static int countEdges(IntHashSet[] graph) {
+        long degreeSum = 0;
+        for (IntHashSet friends : graph) {
+            if (friends != null) {
+                degreeSum += friends.size();
+            }
+        }
+        return (int) (degreeSum / 2);
+    }
+
+    private void applyLocked(FriendshipChangedEvent event) {
+        for (FriendshipChangedEvent.Edge edge : event.getEdges()) {
+            int a = edge.getUserId();
+            int b = edge.getFriendId();
+            if (event.getChange() == FriendshipChangedEvent.Change.ADDED) {
+                adjacency = ensureCapacity(adjacency, Math.max(a, b));
+                if (link(adjacency, a, b)) {
+                    edgeCount++;
+                }
+            } else if (unlink(adjacency, a, b)) {
+                edgeCount--;
+            }
+        }
+    }
+
+    private static boolean link(IntHashSet[] graph, int a, int b) {
+        if (a <= 0 || b <= 0 || a == b) {
+            return false;
+        }
+        if (graph[a] == null) {
+            graph[a] = new IntHashSet();
+        }
+        if (graph[b] == null) {
+            graph[b] = new IntHashSet();
+        }
+        boolean added = graph[a].add(b);
+        graph[b].add(a);
+        return added;
+    }
+
+    private static boolean unlink(IntHashSet[] graph, int a, int b) {
+        if (a <= 0 || b <= 0 || a >= graph.length || b >= graph.length
+                || graph[a] == null || graph[b] == null) {
+            return false;
+        }
+        boolean removed = graph[a].remove(b);
+        graph[b].remove(a);
+        return removed;
+    }
+
+    private static IntHashSet[] ensureCapacity(IntHashSet[] graph, int maxUserId) {
+        if (maxUserId < graph.length) {
+            return graph;
+        }
+        int newLength = Math.max(maxUserId + 1, graph.length + (graph.length >> 1) + 16);
+        return Arrays.copyOf(graph, newLength);
+    }
+}
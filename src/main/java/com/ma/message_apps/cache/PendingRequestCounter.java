@@ -0,0 +1,124 @@
+package com.ma.message_apps.cache;
+
+import com.ma.message_apps.datasource.ReadYourWritesTracker;
+import com.ma.message_apps.enumDto.FriendStatus;
+import com.ma.message_apps.event.ListenerOrder;
+import com.ma.message_apps.event.PendingRequestsChangedEvent;
+import com.ma.message_apps.repository.FriendRequestsRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Number of pending friend requests each user has received
+ * A user's count is loaded with one COUNT query the first time it is asked for and then
+ * maintained from {@link PendingRequestsChangedEvent}s, so badge polling does not touch the
+ * database. The user's entry is registered before the COUNT runs, so changes committed
+ * meanwhile are added on top of it rather than lost. A change committed just before the
+ * count may be applied twice; the count is corrected whenever the user's complete inbox
+ * fits in one page.
+ * Lookups are counted as {@code cache.gets} with {@code cache=pending-requests}, like the
+ * Caffeine caches, so their hit ratio shows next to the others.
+ */
+@Component
+public class PendingRequestCounter {
+
+    private final FriendRequestsRepository friendRequestsRepository;
+    private final ReadYourWritesTracker readYourWrites;
+    private final Map<Integer, Entry> pendingByReceiver = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+
+    @Autowired
+    public PendingRequestCounter(
+            FriendRequestsRepository friendRequestsRepository,
+            ReadYourWritesTracker readYourWrites,
+            MeterRegistry meterRegistry) {
+        this.friendRequestsRepository = friendRequestsRepository;
+        this.readYourWrites = readYourWrites;
+        this.hits = CacheMeters.gets(meterRegistry, "pending-requests", "hit");
+        this.misses = CacheMeters.gets(meterRegistry, "pending-requests", "miss");
+        Gauge.builder("cache.size", pendingByReceiver, Map::size)
+                .tag("cache", "pending-requests")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Get the number of pending requests a user has received
+     */
+    public int getPendingCount(int receiverId) {
+        Entry entry = pendingByReceiver.get(receiverId);
+        if (entry != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            // Registered before counting, and counted outside any map lock
+            Entry created = new Entry();
+            entry = pendingByReceiver.putIfAbsent(receiverId, created);
+            if (entry == null) {
+                load(receiverId, created);
+                return created.count.get();
+            }
+        }
+        // Another thread may still be counting
+        entry.loaded.join();
+        return entry.count.get();
+    }
+
+    /**
+     * Replace a user's count with an exact value observed from the database
+     */
+    public void reset(int receiverId, int count) {
+        Entry entry = new Entry();
+        entry.count.set(count);
+        entry.loaded.complete(null);
+        pendingByReceiver.put(receiverId, entry);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(ListenerOrder.APPLY)
+    public void onPendingRequestsChanged(PendingRequestsChangedEvent event) {
+        // Only users already loaded are maintained; others are counted on first access
+        event.getDeltas().forEach((receiverId, delta) ->
+                pendingByReceiver.computeIfPresent(receiverId, (id, entry) -> {
+                    if (entry.loaded.isDone()) {
+                        entry.count.updateAndGet(current -> Math.max(0, current + delta));
+                    } else {
+                        // Still counting; the delta may be negative until the count is added
+                        entry.count.addAndGet(delta);
+                    }
+                    return entry;
+                }));
+    }
+
+    private void load(Integer receiverId, Entry entry) {
+        try {
+            // Counted on the primary, since events only add to what the query saw
+            long count = readYourWrites.readFromPrimary(
+                    () -> friendRequestsRepository.countByReceiverUserIdAndStatus(receiverId, FriendStatus.PENDING));
+            entry.count.updateAndGet(delta -> Math.max(0, (int) count + delta));
+            entry.loaded.complete(null);
+        } catch (RuntimeException e) {
+            pendingByReceiver.remove(receiverId, entry);
+            entry.loaded.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * A user's count, holding the deltas received while it is being loaded
+     */
+    private static class Entry {
+        private final AtomicInteger count = new AtomicInteger();
+        private final CompletableFuture<Void> loaded = new CompletableFuture<>();
+    }
+}
@@ -0,0 +1,65 @@
+package com.ma.message_apps.cache;
+
+import com.ma.message_apps.enumDto.UserStatus;
+import com.ma.message_apps.event.ListenerOrder;
+import com.ma.message_apps.event.MessageSentEvent;
+import lombok.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory presence of users: current status and the last time they were seen
+ * Users without an entry are treated as offline and never seen since startup,
+ * which matches the statuses being reset to OFFLINE when the application starts.
+ */
+@Component
+public class PresenceRegistry {
+
+    @Value
+    public static class Presence {
+        UserStatus status;
+        long lastSeenMillis;
+    }
+
+    private final Map<Integer, Presence> presence = new ConcurrentHashMap<>();
+
+    /**
+     * Record a status change
+     */
+    public void updateStatus(int userId, UserStatus status) {
+        presence.put(userId, new Presence(status, System.currentTimeMillis()));
+    }
+
+    /**
+     * Record activity without changing the status
+     */
+    public void touch(int userId) {
+        long now = System.currentTimeMillis();
+        presence.compute(userId, (id, current) ->
+                new Presence(current != null ? current.getStatus() : UserStatus.ONLINE, now));
+    }
+
+    /**
+     * Forget a user, e.g. after the account is deleted
+     */
+    public void remove(int userId) {
+        presence.remove(userId);
+    }
+
+    /**
+     * Get a user's presence, or null if they have not been seen since startup
+     */
+    public Presence get(int userId) {
+        return presence.get(userId);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(ListenerOrder.APPLY)
+    public void onMessageSent(MessageSentEvent event) {
+        touch(event.getSenderId());
+    }
+}
@@ -0,0 +1,147 @@
+package com.ma.message_apps.cache;
+
+import com.ma.message_apps.event.FriendshipChangedEvent;
+import com.ma.message_apps.event.ListenerOrder;
+import com.ma.message_apps.event.MessageSentEvent;
+import com.ma.message_apps.event.UserChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Change counters behind the ETags of polled resources
+ * Every change takes the next value of one sequence and records it against the users,
+ * friend lists and conversations it affects, so a resource's version is the sequence value of
+ * its last change and unchanged resources take no memory. Tags include a per-start epoch, so
+ * versions from before a restart or from another node never match.
+ * Versions are bumped after the change commits and after the friendship graph, caches and
+ * counters have applied it ({@link ListenerOrder#DERIVE}); a response read before the bump
+ * carries the older tag, so a stale tag can cost an extra full response but never a wrong 304.
+ */
+@Component
+public class ResourceVersions {
+
+    private final FriendshipGraph friendshipGraph;
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Map<Integer, Long> users = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> friendLists = new ConcurrentHashMap<>();
+    // Friend lists with presence also change with unread counts and friends' last seen times
+    private final Map<Integer, Long> presenceLists = new ConcurrentHashMap<>();
+    private final Map<Long, Long> conversations = new ConcurrentHashMap<>();
+    // Last change to any user, and to friend lists that could not be resolved individually
+    private volatile long anyUser;
+    private volatile long allFriendLists;
+    private volatile long allPresenceLists;
+
+    @Autowired
+    public ResourceVersions(FriendshipGraph friendshipGraph) {
+        this.friendshipGraph = friendshipGraph;
+    }
+
+    /**
+     * ETag of a user's profile and status
+     */
+    public String userTag(int userId) {
+        return tag("u", users.getOrDefault(userId, 0L));
+    }
+
+    /**
+     * ETag of the status list of all users
+     */
+    public String statusesTag() {
+        return tag("s", anyUser);
+    }
+
+    /**
+     * ETag of a user's friend list, optionally with presence and unread counts
+     * Includes the user ID, since versions are shared by every user a change touches and
+     * the session-scoped list URL is the same for every user.
+     */
+    public String friendListTag(int userId, boolean includePresence) {
+        long version = Math.max(allFriendLists, friendLists.getOrDefault(userId, 0L));
+        if (includePresence) {
+            version = Math.max(version, Math.max(allPresenceLists, presenceLists.getOrDefault(userId, 0L)));
+        }
+        return tag((includePresence ? "fp-" : "f-") + userId, version);
+    }
+
+    /**
+     * ETag of the conversation between two users, in the full or compact format
+     * Includes both users' versions, since messages embed their names and statuses
+     */
+    public String conversationTag(int userId1, int userId2, boolean compact) {
+        long version = Math.max(conversations.getOrDefault(conversationKey(userId1, userId2), 0L),
+                Math.max(users.getOrDefault(userId1, 0L), users.getOrDefault(userId2, 0L)));
+        return tag(compact ? "cc" : "c", version);
+    }
+
+    /**
+     * Record that a user has read the messages another user sent them
+     */
+    public void conversationRead(int readerId, int senderId) {
+        long version = sequence.incrementAndGet();
+        conversations.put(conversationKey(readerId, senderId), version);
+        presenceLists.put(readerId, version);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(ListenerOrder.DERIVE)
+    public void onMessageSent(MessageSentEvent event) {
+        long version = sequence.incrementAndGet();
+        conversations.put(conversationKey(event.getSenderId(), event.getReceiverId()), version);
+        presenceLists.put(event.getReceiverId(), version);
+
+        // Sending touches the sender's last seen time, which their friends' presence lists show
+        if (friendshipGraph.isReady()) {
+            for (int friendId : friendshipGraph.getFriendIds(event.getSenderId())) {
+                presenceLists.put(friendId, version);
+            }
+        } else {
+            allPresenceLists = version;
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(ListenerOrder.DERIVE)
+    public void onFriendshipChanged(FriendshipChangedEvent event) {
+        long version = sequence.incrementAndGet();
+        for (FriendshipChangedEvent.Edge edge : event.getEdges()) {
+            friendLists.put(edge.getUserId(), version);
+            friendLists.put(edge.getFriendId(), version);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(ListenerOrder.DERIVE)
+    public void onUserChanged(UserChangedEvent event) {
+        long version = sequence.incrementAndGet();
+        users.put(event.getUserId(), version);
+        anyUser = version;
+
+        // Friend lists embed each friend's profile and status; a deleted user's edges may already be gone
+        if (friendshipGraph.isReady() && event.getChange() != UserChangedEvent.Change.DELETED) {
+            for (int friendId : friendshipGraph.getFriendIds(event.getUserId())) {
+                friendLists.put(friendId, version);
+            }
+        } else {
+            allFriendLists = version;
+        }
+    }
+
+    private String tag(String resource, long version) {
+        return "W/\"" + resource + "-" + epoch + "-" + version + "\"";
+    }
+
+    private static long conversationKey(int userId1, int userId2) {
+        int low = Math.min(userId1, userId2);
+        int high = Math.max(userId1, userId2);
+        return ((long) low << 32) | (high & 0xffffffffL);
+    }
+}
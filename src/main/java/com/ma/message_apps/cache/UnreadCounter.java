@@ -0,0 +1,121 @@
+package com.ma.message_apps.cache;
+
+import com.ma.message_apps.datasource.ReadYourWritesTracker;
+import com.ma.message_apps.event.ListenerOrder;
+import com.ma.message_apps.event.MessageSentEvent;
+import com.ma.message_apps.repository.MessageStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unread message counts per recipient and sender
+ * A recipient's counts are loaded with one grouped query the first time they are needed
+ * and then maintained from {@link MessageSentEvent}s and read markers. The recipient's entry
+ * is registered before the query runs, so messages sent meanwhile are added on top of the
+ * loaded counts rather than lost. A message sent just before the query, or a conversation
+ * read while it runs, may be counted too high; the count is corrected when the
+ * conversation is next read, which an unread count above zero always triggers.
+ * Lookups are counted as {@code cache.gets} with {@code cache=unread-counts}.
+ */
+@Component
+public class UnreadCounter {
+
+    private final MessageStore messageStore;
+    private final ReadYourWritesTracker readYourWrites;
+    private final Map<Integer, Entry> unreadByRecipient = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+
+    @Autowired
+    public UnreadCounter(MessageStore messageStore, ReadYourWritesTracker readYourWrites, MeterRegistry meterRegistry) {
+        this.messageStore = messageStore;
+        this.readYourWrites = readYourWrites;
+        this.hits = CacheMeters.gets(meterRegistry, "unread-counts", "hit");
+        this.misses = CacheMeters.gets(meterRegistry, "unread-counts", "miss");
+        Gauge.builder("cache.size", unreadByRecipient, Map::size)
+                .tag("cache", "unread-counts")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Get unread counts for a recipient, keyed by sender ID
+     */
+    public Map<Integer, AtomicInteger> getUnreadCounts(int recipientId) {
+        Entry entry = unreadByRecipient.get(recipientId);
+        if (entry != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            // Registered before counting, and counted outside any map lock
+            Entry created = new Entry();
+            entry = unreadByRecipient.putIfAbsent(recipientId, created);
+            if (entry == null) {
+                entry = created;
+                load(recipientId, created);
+            }
+        }
+        // Another thread may still be counting
+        entry.loaded.join();
+        return Collections.unmodifiableMap(entry.counts);
+    }
+
+    /**
+     * Get the number of unread messages a recipient has from one sender
+     */
+    public int getUnreadCount(int recipientId, int senderId) {
+        AtomicInteger count = getUnreadCounts(recipientId).get(senderId);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * Clear the count once the recipient has read the conversation
+     */
+    public void markRead(int recipientId, int senderId) {
+        unreadByRecipient.computeIfPresent(recipientId, (id, entry) -> {
+            entry.counts.remove(senderId);
+            return entry;
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(ListenerOrder.APPLY)
+    public void onMessageSent(MessageSentEvent event) {
+        // Only recipients already loaded are maintained; others are counted on first access
+        unreadByRecipient.computeIfPresent(event.getReceiverId(), (id, entry) -> {
+            entry.counts.computeIfAbsent(event.getSenderId(), sender -> new AtomicInteger()).incrementAndGet();
+            return entry;
+        });
+    }
+
+    private void load(Integer recipientId, Entry entry) {
+        try {
+            // Counted on the primary, since events only add to what the query saw
+            readYourWrites.readFromPrimary(() -> messageStore.countUnreadBySender(recipientId)).forEach((senderId, count) ->
+                    entry.counts.computeIfAbsent(senderId, sender -> new AtomicInteger()).addAndGet(count));
+            entry.loaded.complete(null);
+        } catch (RuntimeException e) {
+            unreadByRecipient.remove(recipientId, entry);
+            entry.loaded.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * A recipient's counts, holding the messages received while they are being loaded
+     */
+    private static class Entry {
+        private final Map<Integer, AtomicInteger> counts = new ConcurrentHashMap<>();
+        private final CompletableFuture<Void> loaded = new CompletableFuture<>();
+    }
+}
@@ -0,0 +1,109 @@
+package com.ma.message_apps.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.ma.message_apps.datasource.ReadYourWritesTracker;
+import com.ma.message_apps.dto.UserIdentity;
+import com.ma.message_apps.entity.User;
+import com.ma.message_apps.event.ListenerOrder;
+import com.ma.message_apps.event.UserChangedEvent;
+import com.ma.message_apps.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Bounded cache of user identities in front of {@link UserRepository}
+ * Entries are evicted by size and age, and whenever a {@link UserChangedEvent} reports a
+ * profile update, status change or deletion. Missing users are not cached, so a user
+ * created after a failed lookup is found on the next call. A user who just changed is reloaded
+ * from the primary, so a lagging replica cannot put the old identity back in the cache.
+ */
+@Component
+public class UserCache {
+
+    private final UserRepository userRepository;
+    private final ReadYourWritesTracker readYourWrites;
+    private final Cache<Integer, UserIdentity> cache;
+
+    @Autowired
+    public UserCache(
+            UserRepository userRepository,
+            ReadYourWritesTracker readYourWrites,
+            @Value("${app.user-cache.max-size:10000}") long maxSize,
+            @Value("${app.user-cache.ttl:10m}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.readYourWrites = readYourWrites;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Get a user's identity, loading it from the database on a miss
+     */
+    public Optional<UserIdentity> get(Integer userId) {
+        if (userId == null) {
+            return Optional.empty();
+        }
+        // Loaded atomically, so an eviction during the load waits for it instead of being
+        // overwritten by the identity read before the change; a null result is not cached
+        return Optional.ofNullable(cache.get(userId, id -> readYourWrites.readFor(id,
+                () -> userRepository.findById(id).map(UserCache::toIdentity)).orElse(null)));
+    }
+
+    /**
+     * Check whether a user exists
+     */
+    public boolean exists(Integer userId) {
+        return get(userId).isPresent();
+    }
+
+    public void evict(Integer userId) {
+        cache.invalidate(userId);
+    }
+
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Expose the underlying cache, e.g. to bind it to a metrics registry
+     */
+    public Cache<Integer, UserIdentity> getNativeCache() {
+        return cache;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(ListenerOrder.APPLY)
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.getChange() != UserChangedEvent.Change.CREATED) {
+            evict(event.getUserId());
+        }
+    }
+
+    private static UserIdentity toIdentity(User user) {
+        return new UserIdentity(
+                user.getUserId(),
+                user.getUsername(),
+                user.getEmail(),
+                user.getStatus(),
+                user.getCreatedAt() != null ? user.getCreatedAt().toLocalDateTime() : null);
+    }
+}
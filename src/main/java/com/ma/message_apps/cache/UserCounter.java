@@ -0,0 +1,96 @@
+package com.ma.message_apps.cache;
+
+import com.ma.message_apps.datasource.ReadYourWritesTracker;
+import com.ma.message_apps.event.ListenerOrder;
+import com.ma.message_apps.event.UserChangedEvent;
+import com.ma.message_apps.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Total number of users
+ * Counted on the primary once on first use and then maintained from {@link UserChangedEvent}s,
+ * so listing pages do not need a COUNT(*) per request. The total is registered before the
+ * COUNT runs, so users created or deleted meanwhile are added on top of it rather than lost.
+ * A change committed just before the count may be applied twice, until the next restart.
+ */
+@Component
+public class UserCounter {
+
+    private final UserRepository userRepository;
+    private final ReadYourWritesTracker readYourWrites;
+    private final AtomicReference<Total> total = new AtomicReference<>();
+
+    @Autowired
+    public UserCounter(UserRepository userRepository, ReadYourWritesTracker readYourWrites) {
+        this.userRepository = userRepository;
+        this.readYourWrites = readYourWrites;
+    }
+
+    /**
+     * Get the total number of users
+     */
+    public long getTotal() {
+        Total current = total.get();
+        if (current == null) {
+            // Registered before counting; concurrent first calls wait for one count
+            Total created = new Total();
+            if (total.compareAndSet(null, created)) {
+                load(created);
+                return created.get();
+            }
+            current = total.get();
+        }
+        current.loaded.join();
+        return current.get();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(ListenerOrder.APPLY)
+    public void onUserChanged(UserChangedEvent event) {
+        Total current = total.get();
+        if (current == null) {
+            // Not counted yet; the first count includes this change
+            return;
+        }
+        if (event.getChange() == UserChangedEvent.Change.CREATED) {
+            current.add(1);
+        } else if (event.getChange() == UserChangedEvent.Change.DELETED) {
+            current.add(-1);
+        }
+    }
+
+    private void load(Total created) {
+        try {
+            created.add(readYourWrites.readFromPrimary(userRepository::count));
+            created.loaded.complete(null);
+        } catch (RuntimeException e) {
+            total.compareAndSet(created, null);
+            created.loaded.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * The total, holding the changes received while it is being counted
+     */
+    private static class Total {
+        private final AtomicLong value = new AtomicLong();
+        private final CompletableFuture<Void> loaded = new CompletableFuture<>();
+
+        private void add(long delta) {
+            value.addAndGet(delta);
+        }
+
+        private long get() {
+            // May be below zero while deletions wait for the count
+            return Math.max(0, value.get());
+        }
+    }
+}
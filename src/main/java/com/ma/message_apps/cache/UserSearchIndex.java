@@ -0,0 +1,154 @@
+package com.ma.message_apps.cache;
+
+import com.ma.message_apps.config.WarmupTask;
+import com.ma.message_apps.datasource.ReadYourWritesTracker;
+import com.ma.message_apps.event.ListenerOrder;
+import com.ma.message_apps.event.UserChangedEvent;
+import com.ma.message_apps.repository.UserRepository;
+import com.ma.message_apps.util.SearchTermIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory search index over every user's username and email
+ * The index is loaded once at startup and kept current through {@link UserChangedEvent}s;
+ * until loading finishes {@link #isReady()} returns false and callers fall back to the database.
+ */
+@Component
+@Slf4j
+public class UserSearchIndex implements WarmupTask {
+
+    private final UserRepository userRepository;
+    private final ReadYourWritesTracker readYourWrites;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private SearchTermIndex index = new SearchTermIndex();
+    private boolean loading;
+    private volatile boolean ready;
+
+    // Changes seen while the initial load is running, replayed once it completes
+    private final List<UserChangedEvent> pendingChanges = new ArrayList<>();
+
+    @Autowired
+    public UserSearchIndex(UserRepository userRepository, ReadYourWritesTracker readYourWrites) {
+        this.userRepository = userRepository;
+        this.readYourWrites = readYourWrites;
+    }
+
+    @Override
+    public String getName() {
+        return "user-search-index";
+    }
+
+    /**
+     * Load the searchable fields of all users from the primary database
+     */
+    @Override
+    public void warmUp() {
+        lock.writeLock().lock();
+        try {
+            loading = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        SearchTermIndex loaded;
+        try {
+            loaded = readYourWrites.readFromPrimary(this::loadUsers);
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                loading = false;
+                pendingChanges.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            index = loaded;
+            for (UserChangedEvent change : pendingChanges) {
+                applyLocked(change);
+            }
+            pendingChanges.clear();
+            loading = false;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("User search index loaded with {} users", loaded.size());
+    }
+
+    /**
+     * Apply user changes once the transaction that produced them has committed
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(ListenerOrder.APPLY)
+    public void onUserChanged(UserChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (!ready) {
+                if (loading) {
+                    pendingChanges.add(event);
+                }
+                return;
+            }
+            applyLocked(event);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Whether the initial load has completed and searches can be answered from memory
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Find the users best matching a query
+     *
+     * @param query Search text
+     * @param limit Maximum number of hits
+     * @return Hits ordered best first, IDs are user IDs
+     */
+    public List<SearchTermIndex.Hit> search(String query, int limit) {
+        lock.readLock().lock();
+        try {
+            return index.search(query, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private SearchTermIndex loadUsers() {
+        SearchTermIndex loaded = new SearchTermIndex();
+        try (Stream<Object[]> users = userRepository.streamSearchFields()) {
+            for (Object[] user : (Iterable<Object[]>) users::iterator) {
+                loaded.put((Integer) user[0], (String) user[1], (String) user[2]);
+            }
+        }
+        return loaded;
+    }
+
+    private void applyLocked(UserChangedEvent event) {
+        switch (event.getChange()) {
+            case CREATED, UPDATED -> index.put(event.getUserId(), event.getUsername(), event.getEmail());
+            case DELETED -> index.remove(event.getUserId());
+            default -> {
+                // Status changes do not affect search
+            }
+        }
+    }
+}
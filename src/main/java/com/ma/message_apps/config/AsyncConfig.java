@@ -0,0 +1,49 @@
+package com.ma.message_apps.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Executors used for background work
+ */
+@Configuration
+public class AsyncConfig {
+
+    public static final String WARMUP_EXECUTOR = "warmupExecutor";
+    public static final String MESSAGING_EXECUTOR = "messagingExecutor";
+
+    /**
+     * Small pool for warm-up tasks started after the application is ready
+     */
+    @Bean(name = WARMUP_EXECUTOR)
+    public ThreadPoolTaskExecutor warmupExecutor(@Value("${app.warmup.threads:2}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("warmup-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Bounded pool for the steps of asynchronous message sends
+     * A full queue rejects new work instead of growing, so overload surfaces as 503s.
+     */
+    @Bean(name = MESSAGING_EXECUTOR)
+    public ThreadPoolTaskExecutor messagingExecutor(
+            @Value("${app.messaging.async.threads:8}") int threads,
+            @Value("${app.messaging.async.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("messaging-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        executor.initialize();
+        return executor;
+    }
+}
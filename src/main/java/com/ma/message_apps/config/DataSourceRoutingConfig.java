@@ -0,0 +1,59 @@
+package com.ma.message_apps.config;
+
+import com.ma.message_apps.datasource.ReadYourWritesTracker;
+import com.ma.message_apps.datasource.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Sends read-only transactions to a replica and everything else to the primary
+ * Active when {@code app.datasource.replica.url} is set; without it Boot's single datasource
+ * is used unchanged. The replica takes the same keys as {@code spring.datasource}, under
+ * {@code app.datasource.replica}, and falls back to the primary's credentials.
+ * Connections are opened lazily, once the transaction's read-only flag is known:
+ * {@code @Transactional(readOnly = true)} work goes to the replica unless the requesting user
+ * wrote recently (see {@link ReadYourWritesTracker}), all other work to the primary.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.datasource.replica", name = "url")
+public class DataSourceRoutingConfig {
+
+    private static final String REPLICA_PREFIX = "app.datasource.replica";
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties, Environment environment) {
+        return DataSources.pool(properties, Binder.get(environment), "spring.datasource.hikari", "primary");
+    }
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource replicaDataSource(DataSourceProperties primaryProperties, Environment environment) {
+        Binder binder = Binder.get(environment);
+        DataSourceProperties properties = DataSources.bind(binder, REPLICA_PREFIX, primaryProperties);
+        HikariDataSource replica = DataSources.pool(properties, binder, REPLICA_PREFIX + ".hikari", "replica");
+        if (!binder.bind(REPLICA_PREFIX + ".hikari.read-only", Boolean.class).isBound()) {
+            replica.setReadOnly(true);
+        }
+        return replica;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(
+            HikariDataSource primaryDataSource,
+            HikariDataSource replicaDataSource,
+            ReadYourWritesTracker readYourWrites) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(
+                new ReplicaRoutingDataSource(primaryDataSource, replicaDataSource, readYourWrites));
+        return dataSource;
+    }
+}
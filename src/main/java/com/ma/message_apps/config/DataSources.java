@@ -0,0 +1,40 @@
+package com.ma.message_apps.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+
+/**
+ * Builds the extra connection pools configured under {@code app.*} like Boot builds its own
+ */
+final class DataSources {
+
+    private DataSources() {
+    }
+
+    /**
+     * Bind datasource properties from a prefix, taking the primary's credentials when none are set
+     */
+    static DataSourceProperties bind(Binder binder, String prefix, DataSourceProperties primary) {
+        DataSourceProperties properties = binder.bind(prefix, DataSourceProperties.class)
+                .orElseThrow(() -> new IllegalStateException(prefix + ".url is not set"));
+        if (properties.getUsername() == null) {
+            properties.setUsername(primary.determineUsername());
+            properties.setPassword(primary.determinePassword());
+        }
+        return properties;
+    }
+
+    /**
+     * Create a Hikari pool, applying any {@code <prefix>.*} Hikari settings
+     */
+    static HikariDataSource pool(DataSourceProperties properties, Binder binder, String prefix, String name) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind(prefix, Bindable.ofInstance(pool));
+        if (pool.getPoolName() == null) {
+            pool.setPoolName(name);
+        }
+        return pool;
+    }
+}
@@ -0,0 +1,83 @@
+package com.ma.message_apps.config;
+
+import com.ma.message_apps.repository.ShardedMessageStore;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores messages on shard databases instead of the main database
+ * Enabled by {@code app.message-shards.enabled=true}. Each entry of
+ * {@code app.message-shards.datasources} takes the same keys as {@code spring.datasource} and
+ * becomes one shard, so the shard count is the number of entries.
+ * The shard pools and the query pool are not beans, so their metrics are bound here, under the
+ * same names Boot uses for its own pools and executors.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.message-shards", name = "enabled", havingValue = "true")
+public class MessageShardingConfig {
+
+    private static final String SHARDS_PREFIX = "app.message-shards.datasources";
+
+    @Bean(destroyMethod = "close")
+    public ShardedMessageStore shardedMessageStore(
+            DataSourceProperties primaryProperties,
+            Environment environment,
+            @Value("${app.message-shards.threads:0}") int threads,
+            @Value("${app.message-shards.timeout:5s}") Duration timeout,
+            @Value("${app.message-shards.initialize-schema:true}") boolean initializeSchema,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        Binder binder = Binder.get(environment);
+        int count = binder.bind(SHARDS_PREFIX, Bindable.listOf(Map.class)).map(List::size).orElse(0);
+        if (count == 0) {
+            throw new IllegalStateException("app.message-shards.enabled is set but no " + SHARDS_PREFIX + " are configured");
+        }
+
+        List<DataSource> shards = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String prefix = SHARDS_PREFIX + "[" + i + "]";
+            DataSourceProperties properties = DataSources.bind(binder, prefix, primaryProperties);
+            HikariDataSource pool = DataSources.pool(properties, binder, prefix + ".hikari", "message-shard-" + i);
+            // Must be set before the pool starts, i.e. before the store creates its schema
+            meterRegistry.ifAvailable(registry -> pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+            shards.add(pool);
+        }
+        ThreadPoolTaskExecutor executor = messageShardExecutor(threads > 0 ? threads : count * 4);
+        meterRegistry.ifAvailable(registry -> new ExecutorServiceMetrics(
+                executor.getThreadPoolExecutor(), "messageShardExecutor", Tags.empty()).bindTo(registry));
+        return new ShardedMessageStore(shards, executor, timeout, initializeSchema);
+    }
+
+    /**
+     * Pool for the per-shard parts of scatter-gather queries, 4 threads per shard unless
+     * {@code app.message-shards.threads} is set
+     */
+    private static ThreadPoolTaskExecutor messageShardExecutor(int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("message-shard-");
+        // Queries are bounded by the shard timeout; nothing needs to finish at shutdown
+        executor.setDaemon(true);
+        executor.initialize();
+        return executor;
+    }
+}
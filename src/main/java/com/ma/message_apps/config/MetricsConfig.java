@@ -0,0 +1,45 @@
+package com.ma.message_apps.config;
+
+import com.ma.message_apps.cache.UserCache;
+import com.ma.message_apps.security.PasswordHasher;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Metrics for components Boot does not instrument by itself
+ * Endpoint latencies, Spring Data repository calls, Hikari pools and executor beans are bound
+ * by Boot's actuator auto-configuration; see the management section of application.yml.
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Hit, miss, eviction and size metrics of the user cache, tagged {@code cache=users}
+     */
+    @Bean
+    public MeterBinder userCacheMetrics(UserCache userCache) {
+        return registry -> CaffeineCacheMetrics.monitor(registry, userCache.getNativeCache(), "users");
+    }
+
+    /**
+     * Saturation of the password hashing pool, which sheds logins with a 503 when full
+     */
+    @Bean
+    public MeterBinder passwordHasherMetrics(PasswordHasher passwordHasher) {
+        return registry -> {
+            Gauge.builder("password.hash.active", passwordHasher, PasswordHasher::getActiveCount)
+                    .description("Password hashes being computed")
+                    .register(registry);
+            Gauge.builder("password.hash.queued", passwordHasher, PasswordHasher::getQueueSize)
+                    .description("Password hashes waiting for a thread")
+                    .register(registry);
+            FunctionCounter.builder("password.hash.rejected", passwordHasher, PasswordHasher::getRejectedCount)
+                    .description("Password hashes rejected because the pool was saturated")
+                    .register(registry);
+        };
+    }
+}
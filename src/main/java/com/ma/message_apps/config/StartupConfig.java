@@ -1,52 +1,67 @@
 package com.ma.message_apps.config;
 
-import com.ma.message_apps.entity.User;
 import com.ma.message_apps.enumDto.UserStatus;
 import com.ma.message_apps.repository.UserRepository;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.ApplicationListener;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Configuration that runs at application startup
- * Handles resetting user statuses when application starts
+ * Handles resetting user statuses and kicking off warm-up tasks when application starts
  */
 @Component
 @Slf4j
 public class StartupConfig implements ApplicationListener<ApplicationReadyEvent> {
 
     private final UserRepository userRepository;
+    private final ObjectProvider<WarmupTask> warmupTasks;
+    private final TaskExecutor warmupExecutor;
 
     @Autowired
-    public StartupConfig(UserRepository userRepository) {
+    public StartupConfig(
+            UserRepository userRepository,
+            ObjectProvider<WarmupTask> warmupTasks,
+            @Qualifier(AsyncConfig.WARMUP_EXECUTOR) TaskExecutor warmupExecutor) {
         this.userRepository = userRepository;
+        this.warmupTasks = warmupTasks;
+        this.warmupExecutor = warmupExecutor;
     }
 
     /**
      * This method runs after the application has started
-     * It resets all user statuses to OFFLINE
+     * It resets all user statuses to OFFLINE with a single UPDATE, so the cost
+     * does not depend on loading the users table, then schedules warm-up tasks.
+     * The UPDATE commits on its own before any task is scheduled, so warm-ups load the reset statuses.
      */
     @Override
-    @Transactional
     public void onApplicationEvent(ApplicationReadyEvent event) {
         log.info("Application started - Resetting all user statuses to OFFLINE");
+        long start = System.nanoTime();
         try {
-            // Find all users
-            Iterable<User> users = userRepository.findAll();
+            int updated = userRepository.resetAllStatuses(UserStatus.OFFLINE);
+            log.info("Successfully reset {} user statuses to OFFLINE in {} ms",
+                    updated, (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            log.error("Error resetting user statuses at startup", e);
+        }
 
-            // Update each user's status to OFFLINE
-            for (User user : users) {
-                user.setStatus(UserStatus.OFFLINE);
-            }
+        warmupTasks.orderedStream()
+                .forEach(task -> warmupExecutor.execute(() -> runWarmup(task)));
+    }
 
-            // Save all users
-            userRepository.saveAll(users);
-            log.info("Successfully reset all user statuses to OFFLINE");
+    private void runWarmup(WarmupTask task) {
+        long start = System.nanoTime();
+        try {
+            task.warmUp();
+            log.info("Warm-up task {} finished in {} ms", task.getName(), (System.nanoTime() - start) / 1_000_000);
         } catch (Exception e) {
-            log.error("Error resetting user statuses at startup", e);
+            log.error("Warm-up task {} failed", task.getName(), e);
         }
     }
 }
@@ -0,0 +1,18 @@
+package com.ma.message_apps.config;
+
+/**
+ * Work that should run once the application is ready, off the startup thread
+ * Implementations are picked up automatically by {@link StartupConfig}
+ */
+public interface WarmupTask {
+
+    /**
+     * Short name used in startup logging
+     */
+    String getName();
+
+    /**
+     * Perform the warm-up work
+     */
+    void warmUp();
+}
@@ -0,0 +1,286 @@
+package com.ma.message_apps.dataset;
+
+import com.ma.message_apps.dto.CompactMessageDto;
+import com.ma.message_apps.enumDto.FriendStatus;
+import com.ma.message_apps.enumDto.UserStatus;
+import com.ma.message_apps.repository.MessageStore;
+import com.ma.message_apps.repository.UserRepository;
+import com.ma.message_apps.security.PasswordHasher;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+/**
+ * Fills the database with a synthetic, reproducible dataset for scale testing
+ * Enabled by {@code app.dataset.generate=true}; runs once before the application reports ready,
+ * so the friendship graph and search index warm up from the generated data. Users are named
+ * {@code <username-prefix>1..N}, all with the password {@code app.dataset.password}, and get IDs
+ * after the highest existing one. The social graph comes from {@link SocialGraphModel}: a
+ * power-law friendship graph stored as accepted friend requests plus friendships, some pending
+ * requests, and conversations of log-normally distributed length between friends. The same seed
+ * and sizes always produce the same rows; only the IDs of friend requests and messages depend on
+ * which thread inserts first. Nothing is generated if the first user already exists.
+ * <p>
+ * Rows are written in JDBC batches by several threads, each owning a range of users. On MySQL add
+ * {@code rewriteBatchedStatements=true} to the URL so batches become multi-row inserts.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.dataset", name = "generate", havingValue = "true")
+@Slf4j
+public class DatasetGenerator implements ApplicationRunner {
+
+    private static final int USERS_PER_TASK = 1_000;
+    private static final String[] WORDS = {
+            "hey", "hi", "ok", "sure", "thanks", "lol", "yes", "no", "maybe", "later", "tonight", "tomorrow",
+            "meeting", "lunch", "coffee", "call", "me", "you", "we", "the", "a", "is", "are", "was", "see",
+            "going", "to", "at", "on", "for", "with", "what", "when", "where", "how", "about", "sounds",
+            "good", "great", "cool", "sorry", "late", "running", "home", "work", "weekend", "plan", "game",
+            "movie", "photo", "link", "check", "this", "out", "did", "get", "message", "my", "your"};
+
+    private final UserRepository userRepository;
+    private final MessageStore messageStore;
+    private final PasswordHasher passwordHasher;
+    private final JdbcTemplate jdbcTemplate;
+    private final int users;
+    private final double averageFriends;
+    private final double averagePendingRequests;
+    private final double powerLawExponent;
+    private final double averageMessages;
+    private final int maxMessages;
+    private final long seed;
+    private final String usernamePrefix;
+    private final String password;
+    private final Instant endTime;
+    private final Duration history;
+    private final int batchSize;
+    private final int threads;
+
+    @Autowired
+    public DatasetGenerator(
+            UserRepository userRepository,
+            MessageStore messageStore,
+            PasswordHasher passwordHasher,
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.dataset.users:100000}") int users,
+            @Value("${app.dataset.average-friends:20}") double averageFriends,
+            @Value("${app.dataset.average-pending-requests:1}") double averagePendingRequests,
+            @Value("${app.dataset.power-law-exponent:2.5}") double powerLawExponent,
+            @Value("${app.dataset.average-messages-per-conversation:10}") double averageMessages,
+            @Value("${app.dataset.max-messages-per-conversation:5000}") int maxMessages,
+            @Value("${app.dataset.seed:42}") long seed,
+            @Value("${app.dataset.username-prefix:user}") String usernamePrefix,
+            @Value("${app.dataset.password:password}") String password,
+            @Value("${app.dataset.end-time:2025-01-01T00:00:00Z}") Instant endTime,
+            @Value("${app.dataset.history:365d}") Duration history,
+            @Value("${app.dataset.batch-size:1000}") int batchSize,
+            @Value("${app.dataset.threads:0}") int threads) {
+        this.userRepository = userRepository;
+        this.messageStore = messageStore;
+        this.passwordHasher = passwordHasher;
+        this.jdbcTemplate = jdbcTemplate;
+        this.users = users;
+        this.averageFriends = averageFriends;
+        this.averagePendingRequests = averagePendingRequests;
+        this.powerLawExponent = powerLawExponent;
+        this.averageMessages = averageMessages;
+        this.maxMessages = maxMessages;
+        this.seed = seed;
+        this.usernamePrefix = usernamePrefix;
+        this.password = password;
+        this.endTime = endTime;
+        this.history = history;
+        this.batchSize = batchSize;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (userRepository.existsByUsername(usernameOf(0))) {
+            log.info("Dataset already present (user {} exists), skipping generation", usernameOf(0));
+            return;
+        }
+        long start = System.nanoTime();
+        SocialGraphModel model = new SocialGraphModel(seed, users, averageFriends, averagePendingRequests,
+                powerLawExponent, averageMessages, maxMessages);
+        Integer maxId = jdbcTemplate.queryForObject("SELECT MAX(user_id) FROM users", Integer.class);
+        int firstId = (maxId == null ? 0 : maxId) + 1;
+        String passwordHash = passwordHasher.hash(password);
+        log.info("Generating dataset: {} users from ID {}, ~{} friends each, seed {}, {} threads",
+                users, firstId, averageFriends, seed, threads);
+
+        LongAdder userRows = new LongAdder();
+        inParallel("users", user -> insertUsers(user, firstId, passwordHash, userRows));
+        LongAdder requestRows = new LongAdder();
+        inParallel("friendships", user -> insertFriendships(model, user, firstId, requestRows));
+        LongAdder messageRows = new LongAdder();
+        inParallel("messages", user -> insertMessages(model, user, firstId, messageRows));
+
+        log.info("Generated {} users, {} friend requests and {} messages in {} s",
+                userRows.sum(), requestRows.sum(), messageRows.sum(), (System.nanoTime() - start) / 1_000_000_000);
+    }
+
+    private void insertUsers(int firstUser, int firstId, String passwordHash, LongAdder rows) {
+        int lastUser = Math.min(users, firstUser + USERS_PER_TASK);
+        List<Object[]> batch = new ArrayList<>(lastUser - firstUser);
+        for (int user = firstUser; user < lastUser; user++) {
+            batch.add(new Object[]{firstId + user, usernameOf(user), passwordHash,
+                    usernameOf(user) + "@example.com", UserStatus.OFFLINE.name(), new Timestamp(signedUpAt(user))});
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO users (user_id, username, password_hash, email, status, created_at) VALUES (?, ?, ?, ?, ?, ?)",
+                batch);
+        rows.add(batch.size());
+    }
+
+    private void insertFriendships(SocialGraphModel model, int firstUser, int firstId, LongAdder rows) {
+        int lastUser = Math.min(users, firstUser + USERS_PER_TASK);
+        List<Object[]> requests = new ArrayList<>();
+        List<Object[]> friendships = new ArrayList<>();
+        for (int user = firstUser; user < lastUser; user++) {
+            for (int friend : model.friendsOf(user)) {
+                Timestamp since = new Timestamp(befriendedAt(user, friend));
+                requests.add(new Object[]{firstId + user, firstId + friend, FriendStatus.ACCEPTED.name(), since});
+                friendships.add(new Object[]{firstId + user, firstId + friend, since});
+                friendships.add(new Object[]{firstId + friend, firstId + user, since});
+            }
+            for (int target : model.pendingTargetsOf(user)) {
+                requests.add(new Object[]{firstId + user, firstId + target, FriendStatus.PENDING.name(),
+                        Timestamp.from(endTime.minus(Duration.ofHours(1 + (user + target) % 240)))});
+            }
+            if (requests.size() >= batchSize || user == lastUser - 1) {
+                jdbcTemplate.batchUpdate(
+                        "INSERT INTO friend_requests (sender_id, receiver_id, status, created_at) VALUES (?, ?, ?, ?)",
+                        requests);
+                jdbcTemplate.batchUpdate(
+                        "INSERT INTO friendships (user_id, friend_id, created_at) VALUES (?, ?, ?)",
+                        friendships);
+                rows.add(requests.size());
+                requests.clear();
+                friendships.clear();
+            }
+        }
+    }
+
+    private void insertMessages(SocialGraphModel model, int firstUser, int firstId, LongAdder rows) {
+        int lastUser = Math.min(users, firstUser + USERS_PER_TASK);
+        List<CompactMessageDto> batch = new ArrayList<>(batchSize);
+        for (int user = firstUser; user < lastUser; user++) {
+            for (int friend : model.friendsOf(user)) {
+                SplittableRandom random = model.conversation(user, friend);
+                int count = model.messageCount(random);
+                if (count > 0) {
+                    addConversation(batch, random, count, befriendedAt(user, friend), firstId + user, firstId + friend);
+                }
+                if (batch.size() >= batchSize) {
+                    messageStore.insertBatch(batch);
+                    rows.add(batch.size());
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            messageStore.insertBatch(batch);
+            rows.add(batch.size());
+        }
+    }
+
+    /**
+     * Add one conversation: bursts from alternating senders at increasing times after the two
+     * became friends, all read except possibly a trailing run from the last sender
+     */
+    private void addConversation(List<CompactMessageDto> batch, SplittableRandom random, int count, long since,
+                                 int userId, int friendId) {
+        long end = endTime.toEpochMilli();
+        long start = since + (long) ((end - since) * random.nextDouble());
+        // Mean gap that fits the conversation between its start and the end time
+        double meanGap = (double) (end - start) / (count + 1);
+        long time = start;
+        int sender = random.nextBoolean() ? userId : friendId;
+        int unreadFrom = random.nextDouble() < 0.3 ? count - 1 - random.nextInt(Math.min(count, 5)) : count;
+        for (int i = 0; i < count; i++) {
+            if (i > 0 && random.nextDouble() < 0.4) {
+                sender = sender == userId ? friendId : userId;
+            }
+            time += 1 + (long) (-Math.log(1 - random.nextDouble()) * meanGap);
+            boolean read = i < unreadFrom;
+            int receiver = sender == userId ? friendId : userId;
+            batch.add(new CompactMessageDto(null, sender, receiver, text(random), read, Math.min(time, end - 1)));
+        }
+    }
+
+    private static String text(SplittableRandom random) {
+        int words = 1 + (int) Math.min(40, -Math.log(1 - random.nextDouble()) * 6);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Sign-up time; earlier users signed up earlier, over the first half of the history
+     */
+    private long signedUpAt(int user) {
+        long historyMillis = history.toMillis();
+        return endTime.toEpochMilli() - historyMillis + (long) ((double) historyMillis / 2 * user / users);
+    }
+
+    /**
+     * Friendship time; the later user befriends within a few weeks of signing up
+     */
+    private long befriendedAt(int user, int friend) {
+        return Math.min(signedUpAt(user) + Duration.ofHours(1 + friend % 720).toMillis(), endTime.toEpochMilli() - 1);
+    }
+
+    private String usernameOf(int user) {
+        return usernamePrefix + (user + 1);
+    }
+
+    /**
+     * Run a step for every block of USERS_PER_TASK users on the generator threads, logging progress
+     */
+    private void inParallel(String phase, IntConsumer step) throws InterruptedException, ExecutionException {
+        long start = System.nanoTime();
+        int tasks = (users + USERS_PER_TASK - 1) / USERS_PER_TASK;
+        AtomicInteger done = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>(tasks);
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int task = 0; task < tasks; task++) {
+                int firstUser = task * USERS_PER_TASK;
+                futures.add(executor.submit(() -> {
+                    step.accept(firstUser);
+                    int finished = done.incrementAndGet();
+                    if (finished % Math.max(1, tasks / 10) == 0) {
+                        log.info("Dataset {}: {}/{} blocks", phase, finished, tasks);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        log.info("Dataset {} written in {} ms", phase, (System.nanoTime() - start) / 1_000_000);
+    }
+}
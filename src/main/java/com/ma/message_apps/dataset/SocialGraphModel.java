@@ -0,0 +1,153 @@
+package com.ma.message_apps.dataset;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic model of a synthetic social network, queried per user
+ * Users are numbered 0..users-1 and user i has weight (i+1)^(-1/(exponent-1)), so low numbers are
+ * the popular accounts. Each user befriends about averageFriends/2 earlier users picked by weight,
+ * which gives a power-law degree distribution and creates every friendship exactly once, from its
+ * later user. Every answer comes from a random stream seeded by the model seed and the users
+ * involved, so it does not depend on which thread asks or in which order.
+ */
+class SocialGraphModel {
+
+    private static final long FRIENDS_STREAM = 1;
+    private static final long PENDING_STREAM = 2;
+    private static final long CONVERSATION_STREAM = 3;
+    // Spread of the message count per conversation; most conversations are short, a few are huge
+    private static final double MESSAGE_COUNT_SIGMA = 2.0;
+
+    private final long seed;
+    private final int users;
+    private final double averageFriends;
+    private final double averagePending;
+    private final double averageMessages;
+    private final int maxMessages;
+    private final double[] cumulativeWeights;
+
+    SocialGraphModel(long seed, int users, double averageFriends, double averagePending, double exponent,
+                     double averageMessages, int maxMessages) {
+        if (exponent <= 1) {
+            throw new IllegalArgumentException("Power-law exponent must be greater than 1");
+        }
+        this.seed = seed;
+        this.users = users;
+        this.averageFriends = averageFriends;
+        this.averagePending = averagePending;
+        this.averageMessages = averageMessages;
+        this.maxMessages = maxMessages;
+
+        double alpha = 1 / (exponent - 1);
+        this.cumulativeWeights = new double[users];
+        double sum = 0;
+        for (int i = 0; i < users; i++) {
+            sum += Math.pow(i + 1, -alpha);
+            cumulativeWeights[i] = sum;
+        }
+    }
+
+    int getUsers() {
+        return users;
+    }
+
+    /**
+     * Get the earlier users a user befriended, sorted
+     */
+    int[] friendsOf(int user) {
+        if (user == 0) {
+            return new int[0];
+        }
+        SplittableRandom random = random(FRIENDS_STREAM, user, 0);
+        int count = Math.min(roundRandomly(averageFriends / 2, random), user);
+        return pick(random, count, user, user);
+    }
+
+    /**
+     * Get the users a user sent a still pending friend request to, sorted
+     * Targets are picked by weight from everyone except the user and their friends. Of two users
+     * that would request each other, only the later one keeps the request.
+     */
+    int[] pendingTargetsOf(int user) {
+        int[] ownFriends = friendsOf(user);
+        return Arrays.stream(pendingCandidatesOf(user))
+                .filter(target -> Arrays.binarySearch(ownFriends, target) < 0
+                        && Arrays.binarySearch(friendsOf(target), user) < 0
+                        && (target < user || Arrays.binarySearch(pendingCandidatesOf(target), user) < 0))
+                .toArray();
+    }
+
+    /**
+     * Get the random stream for the conversation between a user and one of the earlier users they
+     * befriended
+     */
+    SplittableRandom conversation(int user, int friend) {
+        return random(CONVERSATION_STREAM, user, friend);
+    }
+
+    /**
+     * Draw the number of messages in a conversation, log-normally distributed around the average
+     */
+    int messageCount(SplittableRandom random) {
+        double mu = Math.log(averageMessages) - MESSAGE_COUNT_SIGMA * MESSAGE_COUNT_SIGMA / 2;
+        double count = Math.exp(mu + MESSAGE_COUNT_SIGMA * random.nextGaussian());
+        return (int) Math.min(maxMessages, Math.round(count));
+    }
+
+    // Targets before the friend and reverse-request checks, used to break the symmetry above
+    private int[] pendingCandidatesOf(int user) {
+        SplittableRandom random = random(PENDING_STREAM, user, 0);
+        int count = roundRandomly(averagePending, random);
+        return pick(random, count, users, user);
+    }
+
+    /**
+     * Pick up to count distinct users below bound by weight, skipping one user
+     */
+    private int[] pick(SplittableRandom random, int count, int bound, int exclude) {
+        int[] picked = new int[count];
+        int found = 0;
+        // Bounded, so the hub-heavy head of small graphs cannot loop forever
+        for (int attempt = 0; attempt < count * 4 && found < count; attempt++) {
+            double point = random.nextDouble() * cumulativeWeights[bound - 1];
+            int index = Arrays.binarySearch(cumulativeWeights, 0, bound, point);
+            int candidate = index >= 0 ? index : -index - 1;
+            if (candidate != exclude && !contains(picked, found, candidate)) {
+                picked[found++] = candidate;
+            }
+        }
+        int[] result = Arrays.copyOf(picked, found);
+        Arrays.sort(result);
+        return result;
+    }
+
+    private SplittableRandom random(long stream, int user, int other) {
+        long mixed = seed;
+        mixed = mix(mixed ^ stream);
+        mixed = mix(mixed ^ user);
+        mixed = mix(mixed ^ other);
+        return new SplittableRandom(mixed);
+    }
+
+    private static boolean contains(int[] values, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int roundRandomly(double value, SplittableRandom random) {
+        int whole = (int) value;
+        return whole + (random.nextDouble() < value - whole ? 1 : 0);
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
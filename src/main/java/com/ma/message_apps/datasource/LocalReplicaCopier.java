@@ -0,0 +1,131 @@
+package com.ma.message_apps.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stand-in for replication between two local H2 databases
+ * Active when {@code app.datasource.replica.local-copy-interval} is set, as in the
+ * {@code replica-local} profile. Once Hibernate has created the primary's schema, the tables are
+ * created on the replica without foreign keys and linked back to the primary. Every interval, all
+ * rows are then copied over in one replica transaction, so readers see the primary as it was up
+ * to one interval ago, and a write wrongly sent to the replica is overwritten by the next copy.
+ * Every copy rewrites whole tables, so this is meant for small development databases only.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.datasource.replica", name = "local-copy-interval")
+@DependsOn("entityManagerFactory")
+@Slf4j
+public class LocalReplicaCopier {
+
+    private static final String LINK_SCHEMA = "primary_link";
+
+    private final HikariDataSource primary;
+    private final HikariDataSource replica;
+    private final List<String> tables;
+    private final ScheduledExecutorService scheduler;
+
+    @Autowired
+    public LocalReplicaCopier(
+            HikariDataSource primaryDataSource,
+            HikariDataSource replicaDataSource,
+            @Value("${app.datasource.replica.local-copy-interval}") Duration interval) throws SQLException {
+        this.primary = primaryDataSource;
+        this.replica = replicaDataSource;
+        // Copied once before any other bean can read from the replica
+        this.tables = createReplicaSchema();
+        copy();
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-copy");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::copySafely, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        log.info("Copying {} tables to the local replica every {}", tables.size(), interval);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private List<String> createReplicaSchema() throws SQLException {
+        List<String> script = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        try (Connection source = primary.getConnection(); Statement statement = source.createStatement()) {
+            try (ResultSet rows = statement.executeQuery("SCRIPT NODATA NOPASSWORDS NOSETTINGS")) {
+                while (rows.next()) {
+                    String sql = rows.getString(1);
+                    // The replica only serves reads, and copying tables one by one would break foreign keys
+                    if (!sql.contains("FOREIGN KEY") && !sql.startsWith("CREATE USER")) {
+                        script.add(sql);
+                    }
+                }
+            }
+            try (ResultSet rows = statement.executeQuery("SELECT table_name FROM information_schema.tables "
+                    + "WHERE table_schema = 'public' AND table_type = 'BASE TABLE'")) {
+                while (rows.next()) {
+                    names.add(rows.getString(1));
+                }
+            }
+        }
+
+        try (Connection target = replica.getConnection(); Statement statement = target.createStatement()) {
+            for (String sql : script) {
+                statement.execute(sql);
+            }
+            statement.execute("CREATE SCHEMA IF NOT EXISTS " + LINK_SCHEMA);
+            for (String table : names) {
+                statement.execute("CREATE LINKED TABLE " + LINK_SCHEMA + ".\"" + table + "\"('org.h2.Driver', '"
+                        + primary.getJdbcUrl() + "', '" + primary.getUsername() + "', '"
+                        + (primary.getPassword() != null ? primary.getPassword() : "") + "', 'public', '"
+                        + table + "') READONLY");
+            }
+        }
+        return names;
+    }
+
+    private void copy() throws SQLException {
+        try (Connection target = replica.getConnection(); Statement statement = target.createStatement()) {
+            target.setAutoCommit(false);
+            try {
+                for (String table : tables) {
+                    statement.execute("DELETE FROM \"" + table + "\"");
+                    statement.execute("INSERT INTO \"" + table + "\" SELECT * FROM " + LINK_SCHEMA + ".\"" + table + "\"");
+                }
+                target.commit();
+            } catch (SQLException e) {
+                target.rollback();
+                throw e;
+            } finally {
+                target.setAutoCommit(true);
+            }
+        }
+    }
+
+    private void copySafely() {
+        try {
+            copy();
+        } catch (SQLException | RuntimeException e) {
+            log.warn("Copy to the local replica failed: {}", e.getMessage());
+        }
+    }
+}
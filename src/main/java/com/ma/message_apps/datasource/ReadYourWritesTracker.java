@@ -0,0 +1,167 @@
+package com.ma.message_apps.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ma.message_apps.event.FriendshipChangedEvent;
+import com.ma.message_apps.event.ListenerOrder;
+import com.ma.message_apps.event.MessageSentEvent;
+import com.ma.message_apps.event.PendingRequestsChangedEvent;
+import com.ma.message_apps.event.UserChangedEvent;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Remembers which users wrote recently, so their reads can bypass a lagging replica
+ * A user who sends a message, changes a friendship or friend request, or updates their
+ * profile is pinned to the primary for the read-your-writes window
+ * ({@code app.datasource.replica.read-your-writes}). Read-only transactions of a request made
+ * by a pinned user, and reads wrapped in {@link #readFor}, then use the primary.
+ * Pins are per user, so they hold across all of a user's sessions and tokens.
+ * Caches that seed themselves with one query and then follow events read through
+ * {@link #readFromPrimary}, since a seed taken from a lagging replica would stay wrong.
+ */
+@Component
+public class ReadYourWritesTracker {
+
+    private static final ThreadLocal<Boolean> FORCE_PRIMARY = new ThreadLocal<>();
+
+    private final Cache<Integer, Boolean> recentWriters;
+    // Looked up lazily: the transaction manager depends on the routing datasource, which depends on this
+    private final ObjectProvider<PlatformTransactionManager> transactionManager;
+    private final boolean replicaEnabled;
+
+    @Autowired
+    public ReadYourWritesTracker(
+            @Value("${app.datasource.replica.read-your-writes:5s}") Duration window,
+            @Value("${app.datasource.replica.url:}") String replicaUrl,
+            ObjectProvider<PlatformTransactionManager> transactionManager) {
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .build();
+        this.transactionManager = transactionManager;
+        this.replicaEnabled = !replicaUrl.isBlank();
+    }
+
+    /**
+     * Pin a user to the primary for the read-your-writes window
+     */
+    public void recordWrite(int userId) {
+        recentWriters.put(userId, Boolean.TRUE);
+    }
+
+    /**
+     * Check whether a user wrote within the read-your-writes window
+     */
+    public boolean isPinned(int userId) {
+        return recentWriters.getIfPresent(userId) != null;
+    }
+
+    /**
+     * Run a read on the primary if the user it concerns wrote recently
+     * Used by caches that load one user's data on behalf of any request. The read only reaches
+     * the primary when it starts its own transaction; inside an open one it uses that
+     * transaction's connection.
+     */
+    public <T> T readFor(int userId, Supplier<T> read) {
+        if (!isPinned(userId) || FORCE_PRIMARY.get() != null) {
+            return read.get();
+        }
+        FORCE_PRIMARY.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            FORCE_PRIMARY.remove();
+        }
+    }
+
+    /**
+     * Run a read in a read-only transaction on the primary, whoever it is for
+     * With a replica configured the read gets a transaction of its own, since a transaction
+     * already open may hold a replica connection; without one it joins the current transaction.
+     */
+    public <T> T readFromPrimary(Supplier<T> read) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager.getObject());
+        transaction.setReadOnly(true);
+        if (!replicaEnabled) {
+            return transaction.execute(status -> read.get());
+        }
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        boolean outermost = FORCE_PRIMARY.get() == null;
+        if (outermost) {
+            FORCE_PRIMARY.set(Boolean.TRUE);
+        }
+        try {
+            return transaction.execute(status -> read.get());
+        } finally {
+            if (outermost) {
+                FORCE_PRIMARY.remove();
+            }
+        }
+    }
+
+    /**
+     * Decide whether the read-only connection being opened now must come from the primary
+     */
+    boolean shouldReadFromPrimary() {
+        if (FORCE_PRIMARY.get() != null) {
+            return true;
+        }
+        Integer userId = currentUserId();
+        return userId != null && isPinned(userId);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(ListenerOrder.APPLY)
+    public void onMessageSent(MessageSentEvent event) {
+        // The recipient's next unread counts and conversation must include the message too
+        recordWrite(event.getSenderId());
+        recordWrite(event.getReceiverId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(ListenerOrder.APPLY)
+    public void onFriendshipChanged(FriendshipChangedEvent event) {
+        for (FriendshipChangedEvent.Edge edge : event.getEdges()) {
+            recordWrite(edge.getUserId());
+            recordWrite(edge.getFriendId());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(ListenerOrder.APPLY)
+    public void onUserChanged(UserChangedEvent event) {
+        recordWrite(event.getUserId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(ListenerOrder.APPLY)
+    public void onPendingRequestsChanged(PendingRequestsChangedEvent event) {
+        // The event names the receivers; the user who sent or resolved the request is the caller
+        event.getDeltas().keySet().forEach(this::recordWrite);
+        Integer userId = currentUserId();
+        if (userId != null) {
+            recordWrite(userId);
+        }
+    }
+
+    private static Integer currentUserId() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return null;
+        }
+        HttpSession session = attributes.getRequest().getSession(false);
+        return session != null && session.getAttribute("userId") instanceof Integer userId ? userId : null;
+    }
+}
@@ -0,0 +1,37 @@
+package com.ma.message_apps.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Source of read-only connections: the replica, or the primary for users who wrote recently
+ * Only asked for connections of read-only transactions; see
+ * {@link com.ma.message_apps.config.DataSourceRoutingConfig}.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Target {
+        PRIMARY,
+        REPLICA
+    }
+
+    private final ReadYourWritesTracker readYourWrites;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReadYourWritesTracker readYourWrites) {
+        this.readYourWrites = readYourWrites;
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(replica);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Target target = readYourWrites.shouldReadFromPrimary() ? Target.PRIMARY : Target.REPLICA;
+        log.debug("Read-only connection from {}", target);
+        return target;
+    }
+}
@@ -0,0 +1,28 @@
+package com.ma.message_apps.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.Timestamp;
+
+/**
+ * Message as sent in the compact list format: user IDs instead of users, epoch-millis time
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CompactMessageDto {
+    private Integer messageId;
+    private Integer senderId;
+    private Integer receiverId;
+    private String messageText;
+    private Boolean isRead;
+    private Long createdAt;
+
+    // Used by JPQL constructor expressions, which select the entity's Timestamp column
+    public CompactMessageDto(Integer messageId, Integer senderId, Integer receiverId, String messageText,
+                             Boolean isRead, Timestamp createdAt) {
+        this(messageId, senderId, receiverId, messageText, isRead, createdAt != null ? createdAt.getTime() : null);
+    }
+}
@@ -0,0 +1,29 @@
+package com.ma.message_apps.dto;
+
+import com.ma.message_apps.enumDto.UserStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact message list: each user referenced by the messages appears once in {@code users}
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CompactMessageListDto {
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class UserRef {
+        private String username;
+        private UserStatus status;
+    }
+
+    private List<CompactMessageDto> messages;
+    private Map<Integer, UserRef> users;
+}
@@ -0,0 +1,22 @@
+package com.ma.message_apps.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A friend together with their presence and the number of unread messages from them
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FriendPresenceDto {
+    private Integer userId;
+    private String username;
+    private String email;
+    private String status; // String representation of status, as in UserStatusDto
+    private LocalDateTime lastSeen;
+    private Integer unreadCount;
+}
@@ -0,0 +1,19 @@
+package com.ma.message_apps.dto;
+
+import com.ma.message_apps.enumDto.UserStatus;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * Immutable identity and profile fields of a user, safe to share from a cache
+ * Never carries the password hash.
+ */
+@Value
+public class UserIdentity {
+    Integer userId;
+    String username;
+    String email;
+    UserStatus status;
+    LocalDateTime createdAt;
+}
@@ -0,0 +1,29 @@
+package com.ma.message_apps.dto;
+
+import com.ma.message_apps.enumDto.UserStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Public fields of a user, selected directly by listing queries
+ * Never carries the password hash.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserSummaryDto {
+    private Integer userId;
+    private String username;
+    private String email;
+    private UserStatus userStatus;
+    private LocalDateTime createdAt;
+
+    // Used by JPQL constructor expressions, which select the entity's Timestamp column
+    public UserSummaryDto(Integer userId, String username, String email, UserStatus userStatus, Timestamp createdAt) {
+        this(userId, username, email, userStatus, createdAt != null ? createdAt.toLocalDateTime() : null);
+    }
+}
@@ -9,7 +9,9 @@ import java.sql.Timestamp;
 
 @Data
 @Entity
-@Table(name = "friend_requests")
+@Table(name = "friend_requests", indexes = {
+        @Index(name = "idx_friend_requests_inbox", columnList = "receiver_id, status, created_at, request_id")
+})
 public class FriendRequests {
 
     @Id
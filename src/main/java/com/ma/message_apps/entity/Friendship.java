@@ -0,0 +1,37 @@
+package com.ma.message_apps.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.sql.Timestamp;
+
+/**
+ * One direction of an accepted friendship
+ * Every friendship is stored twice, (a, b) and (b, a), so the composite primary key
+ * answers "friends of user X" with a single index range scan on user_id.
+ */
+@Entity
+@Table(name = "friendships")
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@ToString(exclude = {"user", "friend"})
+public class Friendship {
+
+    @EmbeddedId
+    private FriendshipId id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", referencedColumnName = "user_id", insertable = false, updatable = false)
+    private User user;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "friend_id", referencedColumnName = "user_id", insertable = false, updatable = false)
+    private User friend;
+
+    @Column(name = "created_at")
+    private Timestamp createdAt;
+}
@@ -0,0 +1,35 @@
+package com.ma.message_apps.event;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Published when accepted friendships are created or removed
+ * A single event may carry several edges so batch operations notify listeners once
+ */
+@Value
+public class FriendshipChangedEvent {
+
+    public enum Change {
+        ADDED,
+        REMOVED
+    }
+
+    @Value
+    public static class Edge {
+        int userId;
+        int friendId;
+    }
+
+    Change change;
+    List<Edge> edges;
+
+    public static FriendshipChangedEvent added(int userId, int friendId) {
+        return new FriendshipChangedEvent(Change.ADDED, List.of(new Edge(userId, friendId)));
+    }
+
+    public static FriendshipChangedEvent removed(int userId, int friendId) {
+        return new FriendshipChangedEvent(Change.REMOVED, List.of(new Edge(userId, friendId)));
+    }
+}
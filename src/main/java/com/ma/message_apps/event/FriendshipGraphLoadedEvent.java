@@ -0,0 +1,11 @@
+package com.ma.message_apps.event;
+
+import lombok.Value;
+
+/**
+ * Published once the in-memory friendship graph has finished its initial load
+ */
+@Value
+public class FriendshipGraphLoadedEvent {
+    int friendshipCount;
+}
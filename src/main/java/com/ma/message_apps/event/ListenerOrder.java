@@ -0,0 +1,23 @@
+package com.ma.message_apps.event;
+
+/**
+ * Order of the listeners that handle the same domain event
+ * Listeners that apply a change to an in-memory copy of the data run first, so listeners that
+ * derive ETag versions or cached results from those copies never see the state before the change.
+ * Listeners without an order run last.
+ */
+public final class ListenerOrder {
+
+    /**
+     * Listeners that update in-memory state: the friendship graph, caches, counters and presence
+     */
+    public static final int APPLY = 0;
+
+    /**
+     * Listeners that read that state to publish versions or invalidate derived results
+     */
+    public static final int DERIVE = 100;
+
+    private ListenerOrder() {
+    }
+}
@@ -0,0 +1,13 @@
+package com.ma.message_apps.event;
+
+import lombok.Value;
+
+/**
+ * Published after a message has been stored
+ */
+@Value
+public class MessageSentEvent {
+    Integer messageId;
+    int senderId;
+    int receiverId;
+}
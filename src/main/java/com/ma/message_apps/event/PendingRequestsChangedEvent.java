@@ -0,0 +1,23 @@
+package com.ma.message_apps.event;
+
+import lombok.Value;
+
+import java.util.Map;
+
+/**
+ * Published when the number of pending friend requests a user has received changes
+ * Deltas are keyed by receiver ID so batch operations notify listeners once
+ */
+@Value
+public class PendingRequestsChangedEvent {
+
+    Map<Integer, Integer> deltas;
+
+    public static PendingRequestsChangedEvent created(int receiverId) {
+        return new PendingRequestsChangedEvent(Map.of(receiverId, 1));
+    }
+
+    public static PendingRequestsChangedEvent resolved(int receiverId) {
+        return new PendingRequestsChangedEvent(Map.of(receiverId, -1));
+    }
+}
@@ -0,0 +1,39 @@
+package com.ma.message_apps.event;
+
+import lombok.Value;
+
+/**
+ * Published when a user account is created, its profile or status changes, or it is deleted
+ * Username and email are null for status changes and deletions.
+ */
+@Value
+public class UserChangedEvent {
+
+    public enum Change {
+        CREATED,
+        UPDATED,
+        STATUS_CHANGED,
+        DELETED
+    }
+
+    Change change;
+    int userId;
+    String username;
+    String email;
+
+    public static UserChangedEvent created(int userId, String username, String email) {
+        return new UserChangedEvent(Change.CREATED, userId, username, email);
+    }
+
+    public static UserChangedEvent updated(int userId, String username, String email) {
+        return new UserChangedEvent(Change.UPDATED, userId, username, email);
+    }
+
+    public static UserChangedEvent statusChanged(int userId) {
+        return new UserChangedEvent(Change.STATUS_CHANGED, userId, null, null);
+    }
+
+    public static UserChangedEvent deleted(int userId) {
+        return new UserChangedEvent(Change.DELETED, userId, null, null);
+    }
+}
@@ -2,8 +2,11 @@ package com.ma.message_apps.exception;
 
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.context.request.WebRequest;
@@ -46,6 +49,33 @@ public class GlobalExceptionHandler {
         return createErrorResponse(HttpStatus.FORBIDDEN, ex.getMessage(), request);
     }
 
+    /**
+     * Handle ServiceOverloadedException
+     */
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<Object> handleServiceOverloadedException(ServiceOverloadedException ex, WebRequest request) {
+        log.warn("SERVICE_OVERLOADED: {}", ex.getMessage());
+        ResponseEntity<Object> response = createErrorResponse(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage(), request);
+        return ResponseEntity.status(response.getStatusCode())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(response.getBody());
+    }
+
+    /**
+     * Handle running out of database connections
+     * The connection pool is the concurrency limit, so a request that cannot get a connection in
+     * time is shed like any other overload rather than reported as a server error.
+     */
+    @ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class})
+    public ResponseEntity<Object> handleConnectionUnavailable(Exception ex, WebRequest request) {
+        log.warn("DATABASE_UNAVAILABLE: {}", ex.getMessage());
+        ResponseEntity<Object> response = createErrorResponse(
+                HttpStatus.SERVICE_UNAVAILABLE, "The service is busy, please retry shortly", request);
+        return ResponseEntity.status(response.getStatusCode())
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(response.getBody());
+    }
+
     /**
      * Handle general exceptions
      */
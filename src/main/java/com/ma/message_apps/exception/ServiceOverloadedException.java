@@ -0,0 +1,18 @@
+package com.ma.message_apps.exception;
+
+/**
+ * Exception thrown when a bounded resource rejects work instead of queueing it
+ */
+public class ServiceOverloadedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ServiceOverloadedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,73 @@
+package com.ma.message_apps.metrics;
+
+import com.ma.message_apps.event.FriendshipChangedEvent;
+import com.ma.message_apps.event.MessageSentEvent;
+import com.ma.message_apps.event.PendingRequestsChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Business counters maintained from committed domain events
+ * Counting events rather than requests covers every path that sends a message or changes a
+ * friend request, including the async and bulk endpoints, and never counts rolled-back work.
+ * The friend request funnel has three stages: {@code created}, {@code resolved} (accepted,
+ * rejected or cancelled) and {@code accepted}; the gap between the last two is the rejected and
+ * cancelled share.
+ */
+@Component
+public class ActivityMetrics {
+
+    private final Counter messagesSent;
+    private final Counter requestsCreated;
+    private final Counter requestsResolved;
+    private final Counter requestsAccepted;
+    private final Counter friendshipsRemoved;
+
+    @Autowired
+    public ActivityMetrics(MeterRegistry meterRegistry) {
+        this.messagesSent = Counter.builder("messages.sent")
+                .description("Messages stored")
+                .register(meterRegistry);
+        this.requestsCreated = funnel(meterRegistry, "created");
+        this.requestsResolved = funnel(meterRegistry, "resolved");
+        this.requestsAccepted = funnel(meterRegistry, "accepted");
+        this.friendshipsRemoved = Counter.builder("friendships.removed")
+                .description("Friendships ended")
+                .register(meterRegistry);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMessageSent(MessageSentEvent event) {
+        messagesSent.increment();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPendingRequestsChanged(PendingRequestsChangedEvent event) {
+        for (int delta : event.getDeltas().values()) {
+            if (delta > 0) {
+                requestsCreated.increment(delta);
+            } else {
+                requestsResolved.increment(-delta);
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFriendshipChanged(FriendshipChangedEvent event) {
+        if (event.getChange() == FriendshipChangedEvent.Change.ADDED) {
+            requestsAccepted.increment(event.getEdges().size());
+        } else {
+            friendshipsRemoved.increment(event.getEdges().size());
+        }
+    }
+
+    private static Counter funnel(MeterRegistry meterRegistry, String stage) {
+        return Counter.builder("friend.requests")
+                .tag("stage", stage)
+                .description("Friend requests reaching each stage")
+                .register(meterRegistry);
+    }
+}
@@ -3,12 +3,17 @@ package com.ma.message_apps.repository;
 import com.ma.message_apps.entity.FriendRequests;
 import com.ma.message_apps.entity.User;
 import com.ma.message_apps.enumDto.FriendStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -20,10 +25,27 @@ public interface FriendRequestsRepository extends JpaRepository<FriendRequests,I
     // Find friend request by sender, receiver and status
     Optional<FriendRequests> findBySenderAndReceiverAndStatus(User sender, User receiver, FriendStatus status);
 
-    @Query("SELECT fr.sender FROM FriendRequests fr WHERE fr.receiver.userId = :userId AND fr.status = com.ma.message_apps.enumDto.FriendStatus.ACCEPTED UNION SELECT fr.receiver FROM FriendRequests fr WHERE fr.sender.userId = :userId AND fr.status = com.ma.message_apps.enumDto.FriendStatus.ACCEPTED")
-    List<User> findAcceptedFriends(@Param("userId") Integer userId);
+    /**
+     * Check if there's an accepted friendship between two users (either direction)
+     */
+    @Query("SELECT COUNT(fr) > 0 FROM FriendRequests fr WHERE " +
+           "((fr.sender.userId = :userId1 AND fr.receiver.userId = :userId2) OR " +
+           "(fr.sender.userId = :userId2 AND fr.receiver.userId = :userId1)) " +
+           "AND fr.status = com.ma.message_apps.enumDto.FriendStatus.ACCEPTED")
+    boolean existsAcceptedBetweenUsers(@Param("userId1") Integer userId1, @Param("userId2") Integer userId2);
+
+    /**
+     * Remove the accepted friendship between two users (either direction)
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM FriendRequests fr WHERE " +
+           "((fr.sender.userId = :userId1 AND fr.receiver.userId = :userId2) OR " +
+           "(fr.sender.userId = :userId2 AND fr.receiver.userId = :userId1)) " +
+           "AND fr.status = com.ma.message_apps.enumDto.FriendStatus.ACCEPTED")
+    int deleteAcceptedBetweenUsers(@Param("userId1") Integer userId1, @Param("userId2") Integer userId2);
 
-    List<FriendRequests> findByReceiverUserIdAndStatus(Integer userId, FriendStatus friendStatus);
+    long countByReceiverUserIdAndStatus(Integer userId, FriendStatus friendStatus);
 
     Optional<FriendRequests> findBySenderUserIdAndReceiverUserId(Integer fromUserId, Integer toUserId);
 
@@ -58,17 +80,36 @@ public interface FriendRequestsRepository extends JpaRepository<FriendRequests,I
     }
 
     /**
-     * Find pending friend requests for a user
+     * First page of a user's pending friend requests, newest first
+     */
+    @Query("SELECT new map(fr.requestId as requestId, " +
+           "fr.sender.userId as senderId, " +
+           "fr.sender.username as senderUsername, " +
+           "fr.status as status, " +
+           "fr.createdAt as createdAt) " +
+           "FROM FriendRequests fr " +
+           "WHERE fr.receiver.userId = :userId AND fr.status = com.ma.message_apps.enumDto.FriendStatus.PENDING " +
+           "ORDER BY fr.createdAt DESC, fr.requestId DESC")
+    List<Map<String, Object>> findPendingPage(@Param("userId") Integer userId, Pageable pageable);
+
+    /**
+     * Next page of a user's pending friend requests, continuing after the given position
+     * Seeks on (created_at, request_id) so every page costs the same however deep it is.
      */
-    @Query("SELECT new map(fr.id as requestId, " +
+    @Query("SELECT new map(fr.requestId as requestId, " +
            "fr.sender.userId as senderId, " +
            "fr.sender.username as senderUsername, " +
            "fr.status as status, " +
            "fr.createdAt as createdAt) " +
            "FROM FriendRequests fr " +
            "WHERE fr.receiver.userId = :userId AND fr.status = com.ma.message_apps.enumDto.FriendStatus.PENDING " +
-           "ORDER BY fr.createdAt DESC")
-    List<Map<String, Object>> findPendingRequestsForUser(@Param("userId") Integer userId);
+           "AND (fr.createdAt < :createdAt OR (fr.createdAt = :createdAt AND fr.requestId < :requestId)) " +
+           "ORDER BY fr.createdAt DESC, fr.requestId DESC")
+    List<Map<String, Object>> findPendingPageAfter(
+            @Param("userId") Integer userId,
+            @Param("createdAt") Timestamp createdAt,
+            @Param("requestId") Integer requestId,
+            Pageable pageable);
 
     /**
      * Update friend request status
@@ -89,6 +130,30 @@ public interface FriendRequestsRepository extends JpaRepository<FriendRequests,I
         }
     }
 
+    /**
+     * Load and lock friend requests for a batch status change
+     * Only the request rows are read; sender and receiver IDs come from the foreign keys.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT fr FROM FriendRequests fr WHERE fr.requestId IN :requestIds")
+    List<FriendRequests> findAllByIdForUpdate(@Param("requestIds") Collection<Integer> requestIds);
+
+    /**
+     * Set the status of every pending request in the batch
+     */
+    @Modifying
+    @Query("UPDATE FriendRequests fr SET fr.status = :status " +
+           "WHERE fr.requestId IN :requestIds AND fr.status = com.ma.message_apps.enumDto.FriendStatus.PENDING")
+    int updatePendingStatus(@Param("requestIds") Collection<Integer> requestIds, @Param("status") FriendStatus status);
+
+    /**
+     * Delete every pending request in the batch
+     */
+    @Modifying
+    @Query("DELETE FROM FriendRequests fr " +
+           "WHERE fr.requestId IN :requestIds AND fr.status = com.ma.message_apps.enumDto.FriendStatus.PENDING")
+    int deletePending(@Param("requestIds") Collection<Integer> requestIds);
+
     /**
      * Check if there's a pending friend request between two users (either direction)
      */
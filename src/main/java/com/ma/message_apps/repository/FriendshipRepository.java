@@ -0,0 +1,85 @@
+package com.ma.message_apps.repository;
+
+import com.ma.message_apps.entity.Friendship;
+import com.ma.message_apps.entity.FriendshipId;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface FriendshipRepository extends JpaRepository<Friendship, FriendshipId> {
+
+    /**
+     * Find the IDs of a user's friends (primary key range scan)
+     */
+    @Query("SELECT f.id.friendId FROM Friendship f WHERE f.id.userId = :userId ORDER BY f.id.friendId")
+    List<Integer> findFriendIds(@Param("userId") Integer userId);
+
+    /**
+     * Check whether two users are friends
+     */
+    @Query("SELECT COUNT(f) > 0 FROM Friendship f WHERE f.id.userId = :userId AND f.id.friendId = :friendId")
+    boolean existsFriendship(@Param("userId") Integer userId, @Param("friendId") Integer friendId);
+
+    /**
+     * Stream every friendship once as a (userId, friendId) pair
+     */
+    @Query("SELECT f.id.userId, f.id.friendId FROM Friendship f WHERE f.id.userId < f.id.friendId")
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    Stream<Object[]> streamFriendPairs();
+
+    /**
+     * Fetch at most a page of user IDs, used to check whether the table has any rows
+     */
+    @Query("SELECT f.id.userId FROM Friendship f")
+    List<Integer> findAnyUserIds(Pageable pageable);
+
+    /**
+     * Store both directions of a friendship, ignoring rows that already exist
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT IGNORE INTO friendships (user_id, friend_id, created_at) " +
+           "VALUES (:userId, :friendId, CURRENT_TIMESTAMP), (:friendId, :userId, CURRENT_TIMESTAMP)", nativeQuery = true)
+    int insertFriendship(@Param("userId") Integer userId, @Param("friendId") Integer friendId);
+
+    /**
+     * Store both directions of the friendship behind each of the given friend requests
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT IGNORE INTO friendships (user_id, friend_id, created_at) " +
+           "SELECT sender_id, receiver_id, CURRENT_TIMESTAMP FROM friend_requests WHERE request_id IN (:requestIds) " +
+           "UNION ALL " +
+           "SELECT receiver_id, sender_id, CURRENT_TIMESTAMP FROM friend_requests WHERE request_id IN (:requestIds)", nativeQuery = true)
+    int insertFriendshipsForRequests(@Param("requestIds") Collection<Integer> requestIds);
+
+    /**
+     * Remove both directions of a friendship
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM Friendship f WHERE " +
+           "(f.id.userId = :userId AND f.id.friendId = :friendId) OR " +
+           "(f.id.userId = :friendId AND f.id.friendId = :userId)")
+    int deleteFriendship(@Param("userId") Integer userId, @Param("friendId") Integer friendId);
+
+    /**
+     * Materialize both directions of every accepted friend request
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT IGNORE INTO friendships (user_id, friend_id, created_at) " +
+           "SELECT sender_id, receiver_id, created_at FROM friend_requests WHERE status = 'ACCEPTED' " +
+           "UNION ALL " +
+           "SELECT receiver_id, sender_id, created_at FROM friend_requests WHERE status = 'ACCEPTED'", nativeQuery = true)
+    int backfillFromAcceptedRequests();
+}
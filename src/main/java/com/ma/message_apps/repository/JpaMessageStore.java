@@ -0,0 +1,87 @@
+package com.ma.message_apps.repository;
+
+import com.ma.message_apps.dto.CompactMessageDto;
+import com.ma.message_apps.entity.Message;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Messages in the main database's messages table, the default unless message sharding is enabled
+ */
+@Repository
+@ConditionalOnProperty(prefix = "app.message-shards", name = "enabled", havingValue = "false", matchIfMissing = true)
+@Timed("message.store.invocations")
+public class JpaMessageStore implements MessageStore {
+
+    private static final String INSERT = "INSERT INTO messages (sender_id, receiver_id, message_text, is_read, created_at) VALUES (?, ?, ?, ?, ?)";
+
+    private final MessageRepository messageRepository;
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public JpaMessageStore(MessageRepository messageRepository, UserRepository userRepository, JdbcTemplate jdbcTemplate) {
+        this.messageRepository = messageRepository;
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public CompactMessageDto insert(int senderId, int receiverId, String text, Timestamp createdAt) {
+        // References only, so neither user is loaded
+        Message message = new Message();
+        message.setSender(userRepository.getReferenceById(senderId));
+        message.setReceiver(userRepository.getReferenceById(receiverId));
+        message.setMessageText(text);
+        message.setCreatedAt(createdAt);
+        message.setIsRead(false);
+
+        Message saved = messageRepository.save(message);
+        return new CompactMessageDto(saved.getMessageId(), senderId, receiverId, saved.getMessageText(),
+                saved.getIsRead(), saved.getCreatedAt());
+    }
+
+    @Override
+    public void insertBatch(List<CompactMessageDto> messages) {
+        // Plain JDBC batches; saving entities would load and track every row in the session
+        jdbcTemplate.batchUpdate(INSERT, messages, messages.size(), (statement, message) -> {
+            statement.setInt(1, message.getSenderId());
+            statement.setInt(2, message.getReceiverId());
+            statement.setString(3, message.getMessageText());
+            statement.setBoolean(4, Boolean.TRUE.equals(message.getIsRead()));
+            statement.setTimestamp(5, message.getCreatedAt() != null ? new Timestamp(message.getCreatedAt()) : null);
+        });
+    }
+
+    @Override
+    public List<CompactMessageDto> findConversation(int userId1, int userId2) {
+        return messageRepository.findCompactMessagesBetweenUsers(userId1, userId2);
+    }
+
+    @Override
+    public List<CompactMessageDto> findForUser(int userId) {
+        return messageRepository.findCompactMessagesForUser(userId);
+    }
+
+    @Override
+    public Map<Integer, Integer> countUnreadBySender(int receiverId) {
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (Object[] row : messageRepository.countUnreadBySender(receiverId)) {
+            counts.put((Integer) row[0], ((Number) row[1]).intValue());
+        }
+        return counts;
+    }
+
+    @Override
+    public int markConversationRead(int senderId, int receiverId) {
+        return messageRepository.markConversationRead(senderId, receiverId);
+    }
+}
@@ -1,9 +1,12 @@
 package com.ma.message_apps.repository;
 
+import com.ma.message_apps.dto.CompactMessageDto;
 import com.ma.message_apps.entity.Message;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -15,4 +18,24 @@ public interface MessageRepository extends JpaRepository<Message,Integer> {
     List<Message> findMessagesBetweenUsers(@Param("userId1") Integer userId1, @Param("userId2") Integer userId2);
 
     List<Message> findBySenderUserIdOrReceiverUserId(Integer userId, Integer userId1);
+
+    @Query("SELECT new com.ma.message_apps.dto.CompactMessageDto(m.messageId, m.sender.userId, m.receiver.userId, m.messageText, m.isRead, m.createdAt) FROM Message m WHERE (m.sender.userId = :userId1 AND m.receiver.userId = :userId2) OR (m.sender.userId = :userId2 AND m.receiver.userId = :userId1) ORDER BY m.createdAt ASC, m.messageId ASC")
+    List<CompactMessageDto> findCompactMessagesBetweenUsers(@Param("userId1") Integer userId1, @Param("userId2") Integer userId2);
+
+    @Query("SELECT new com.ma.message_apps.dto.CompactMessageDto(m.messageId, m.sender.userId, m.receiver.userId, m.messageText, m.isRead, m.createdAt) FROM Message m WHERE m.sender.userId = :userId OR m.receiver.userId = :userId ORDER BY m.createdAt ASC, m.messageId ASC")
+    List<CompactMessageDto> findCompactMessagesForUser(@Param("userId") Integer userId);
+
+    /**
+     * Count a user's unread messages grouped by sender, as (senderId, count) pairs
+     */
+    @Query("SELECT m.sender.userId, COUNT(m) FROM Message m WHERE m.receiver.userId = :userId AND m.isRead = false GROUP BY m.sender.userId")
+    List<Object[]> countUnreadBySender(@Param("userId") Integer userId);
+
+    /**
+     * Mark every unread message from one user to another as read
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Message m SET m.isRead = true WHERE m.sender.userId = :senderId AND m.receiver.userId = :receiverId AND m.isRead = false")
+    int markConversationRead(@Param("senderId") Integer senderId, @Param("receiverId") Integer receiverId);
 }
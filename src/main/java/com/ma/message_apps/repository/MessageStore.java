@@ -0,0 +1,51 @@
+package com.ma.message_apps.repository;
+
+import com.ma.message_apps.dto.CompactMessageDto;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Storage of messages, either in the main database ({@link JpaMessageStore}) or spread over
+ * shard databases by conversation ({@link ShardedMessageStore})
+ * Every per-conversation operation touches one conversation's storage only; operations across
+ * all of a user's conversations may have to visit every shard.
+ */
+public interface MessageStore {
+
+    /**
+     * Store a new unread message
+     *
+     * @return The stored message, with its ID
+     */
+    CompactMessageDto insert(int senderId, int receiverId, String text, Timestamp createdAt);
+
+    /**
+     * Store many messages at once with their own read flags and times, e.g. a generated dataset
+     * IDs in the input are ignored; the store assigns them.
+     */
+    void insertBatch(List<CompactMessageDto> messages);
+
+    /**
+     * Find the messages between two users, oldest first
+     */
+    List<CompactMessageDto> findConversation(int userId1, int userId2);
+
+    /**
+     * Find every message a user sent or received, oldest first
+     */
+    List<CompactMessageDto> findForUser(int userId);
+
+    /**
+     * Count a user's unread messages by sender ID
+     */
+    Map<Integer, Integer> countUnreadBySender(int receiverId);
+
+    /**
+     * Mark every unread message from one user to another as read
+     *
+     * @return Number of messages marked
+     */
+    int markConversationRead(int senderId, int receiverId);
+}
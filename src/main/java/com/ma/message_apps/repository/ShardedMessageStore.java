@@ -0,0 +1,247 @@
+package com.ma.message_apps.repository;
+
+import com.ma.message_apps.dto.CompactMessageDto;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Messages spread over several shard databases by conversation
+ * A conversation lives on the shard picked by a hash of its two user IDs, so conversation reads,
+ * inserts and read markers use exactly one shard. A user's messages across all conversations
+ * are fetched from every shard in parallel and merged by time.
+ * Shards only hold user IDs, since users stay in the main database. Message IDs are the shard's
+ * row ID times the shard count plus the shard index, so they are unique across shards as long as
+ * the shard count does not change. IDs are ints, so each shard holds at most
+ * {@code Integer.MAX_VALUE / shardCount} row IDs (about 715 million with three shards); a row
+ * beyond that fails with an error rather than getting a negative or duplicate ID.
+ */
+@Slf4j
+@Timed("message.store.invocations")
+public class ShardedMessageStore implements MessageStore, AutoCloseable {
+
+    private static final String SCHEMA = "CREATE TABLE IF NOT EXISTS messages ("
+            + "message_id INT AUTO_INCREMENT PRIMARY KEY, "
+            + "sender_id INT NOT NULL, "
+            + "receiver_id INT NOT NULL, "
+            + "message_text TEXT, "
+            + "is_read BOOLEAN NOT NULL DEFAULT FALSE, "
+            + "created_at TIMESTAMP(3) NULL, "
+            + "INDEX idx_messages_sender_receiver (sender_id, receiver_id, created_at), "
+            + "INDEX idx_messages_receiver_sender (receiver_id, sender_id, is_read))";
+    private static final String COLUMNS = "SELECT message_id, sender_id, receiver_id, message_text, is_read, created_at FROM messages ";
+
+    private static final Comparator<CompactMessageDto> BY_TIME = Comparator
+            .comparing(CompactMessageDto::getCreatedAt, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(CompactMessageDto::getMessageId);
+
+    private final List<DataSource> dataSources;
+    private final List<JdbcTemplate> shards;
+    private final Executor executor;
+    private final long timeoutMillis;
+
+    public ShardedMessageStore(List<DataSource> dataSources, Executor executor, Duration timeout, boolean initializeSchema) {
+        if (dataSources.isEmpty()) {
+            throw new IllegalArgumentException("At least one message shard is required");
+        }
+        this.dataSources = List.copyOf(dataSources);
+        this.shards = dataSources.stream().map(JdbcTemplate::new).toList();
+        this.executor = executor;
+        this.timeoutMillis = timeout.toMillis();
+        if (initializeSchema) {
+            shards.forEach(shard -> shard.execute(SCHEMA));
+        }
+        log.info("Storing messages on {} shards", shards.size());
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * Get the index of the shard holding the conversation between two users
+     */
+    public int shardOf(int userId1, int userId2) {
+        long key = ((long) Math.min(userId1, userId2) << 32) | (Math.max(userId1, userId2) & 0xffffffffL);
+        // Fibonacci hashing spreads consecutive user IDs over all shards
+        int hash = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32);
+        return Math.floorMod(hash, shards.size());
+    }
+
+    @Override
+    public CompactMessageDto insert(int senderId, int receiverId, String text, Timestamp createdAt) {
+        int shard = shardOf(senderId, receiverId);
+        KeyHolder keys = new GeneratedKeyHolder();
+        shards.get(shard).update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO messages (sender_id, receiver_id, message_text, is_read, created_at) VALUES (?, ?, ?, FALSE, ?)",
+                    Statement.RETURN_GENERATED_KEYS);
+            statement.setInt(1, senderId);
+            statement.setInt(2, receiverId);
+            statement.setString(3, text);
+            statement.setTimestamp(4, createdAt);
+            return statement;
+        }, keys);
+        return new CompactMessageDto(globalId(keys.getKey().intValue(), shard), senderId, receiverId, text, false, createdAt);
+    }
+
+    @Override
+    public void insertBatch(List<CompactMessageDto> messages) {
+        Map<Integer, List<CompactMessageDto>> byShard = new HashMap<>();
+        for (CompactMessageDto message : messages) {
+            byShard.computeIfAbsent(shardOf(message.getSenderId(), message.getReceiverId()), shard -> new ArrayList<>())
+                    .add(message);
+        }
+        byShard.forEach((shard, shardMessages) -> shards.get(shard).batchUpdate(
+                "INSERT INTO messages (sender_id, receiver_id, message_text, is_read, created_at) VALUES (?, ?, ?, ?, ?)",
+                shardMessages, shardMessages.size(), (statement, message) -> {
+                    statement.setInt(1, message.getSenderId());
+                    statement.setInt(2, message.getReceiverId());
+                    statement.setString(3, message.getMessageText());
+                    statement.setBoolean(4, Boolean.TRUE.equals(message.getIsRead()));
+                    statement.setTimestamp(5, message.getCreatedAt() != null ? new Timestamp(message.getCreatedAt()) : null);
+                }));
+    }
+
+    @Override
+    public List<CompactMessageDto> findConversation(int userId1, int userId2) {
+        int shard = shardOf(userId1, userId2);
+        return shards.get(shard).query(
+                COLUMNS + "WHERE (sender_id = ? AND receiver_id = ?) OR (sender_id = ? AND receiver_id = ?) "
+                        + "ORDER BY created_at, message_id",
+                rowMapper(shard), userId1, userId2, userId2, userId1);
+    }
+
+    @Override
+    public List<CompactMessageDto> findForUser(int userId) {
+        return mergeByTime(onAllShards(shard -> shards.get(shard).query(
+                COLUMNS + "WHERE sender_id = ? OR receiver_id = ? ORDER BY created_at, message_id",
+                rowMapper(shard), userId, userId)));
+    }
+
+    @Override
+    public Map<Integer, Integer> countUnreadBySender(int receiverId) {
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (Map<Integer, Integer> shardCounts : onAllShards(shard -> {
+            Map<Integer, Integer> found = new HashMap<>();
+            shards.get(shard).query(
+                    "SELECT sender_id, COUNT(*) FROM messages WHERE receiver_id = ? AND is_read = FALSE GROUP BY sender_id",
+                    rs -> {
+                        found.put(rs.getInt(1), rs.getInt(2));
+                    },
+                    receiverId);
+            return found;
+        })) {
+            shardCounts.forEach((senderId, count) -> counts.merge(senderId, count, Integer::sum));
+        }
+        return counts;
+    }
+
+    @Override
+    public int markConversationRead(int senderId, int receiverId) {
+        return shards.get(shardOf(senderId, receiverId)).update(
+                "UPDATE messages SET is_read = TRUE WHERE sender_id = ? AND receiver_id = ? AND is_read = FALSE",
+                senderId, receiverId);
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (DataSource dataSource : dataSources) {
+            if (dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    /**
+     * Run a query on every shard in parallel and wait for all results
+     */
+    private <T> List<T> onAllShards(Function<Integer, T> query) {
+        List<CompletableFuture<T>> futures = new ArrayList<>(shards.size());
+        for (int shard = 0; shard < shards.size(); shard++) {
+            int index = shard;
+            futures.add(CompletableFuture.supplyAsync(() -> query.apply(index), executor));
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            futures.forEach(future -> future.cancel(false));
+            throw new DataAccessResourceFailureException("Message shards did not answer within " + timeoutMillis + "ms");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new DataAccessResourceFailureException("Message shard query failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessResourceFailureException("Interrupted while querying message shards", e);
+        }
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+
+    /**
+     * Merge per-shard lists, each already sorted by time, into one sorted list
+     */
+    static List<CompactMessageDto> mergeByTime(List<List<CompactMessageDto>> sorted) {
+        int total = sorted.stream().mapToInt(List::size).sum();
+        List<CompactMessageDto> merged = new ArrayList<>(total);
+        // Each entry is {shard, position}, ordered by the message at that position
+        PriorityQueue<int[]> heads = new PriorityQueue<>(Math.max(1, sorted.size()),
+                (a, b) -> BY_TIME.compare(sorted.get(a[0]).get(a[1]), sorted.get(b[0]).get(b[1])));
+        for (int shard = 0; shard < sorted.size(); shard++) {
+            if (!sorted.get(shard).isEmpty()) {
+                heads.add(new int[]{shard, 0});
+            }
+        }
+        while (!heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<CompactMessageDto> messages = sorted.get(head[0]);
+            merged.add(messages.get(head[1]));
+            if (++head[1] < messages.size()) {
+                heads.add(head);
+            }
+        }
+        return merged;
+    }
+
+    private RowMapper<CompactMessageDto> rowMapper(int shard) {
+        return (rs, rowNum) -> new CompactMessageDto(
+                globalId(rs.getInt("message_id"), shard),
+                rs.getInt("sender_id"),
+                rs.getInt("receiver_id"),
+                rs.getString("message_text"),
+                rs.getBoolean("is_read"),
+                rs.getTimestamp("created_at"));
+    }
+
+    private int globalId(int rowId, int shard) {
+        long id = (long) rowId * shards.size() + shard;
+        if (id > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Row ID " + rowId + " on message shard " + shard
+                    + " is beyond the message ID range of " + shards.size() + " shards");
+        }
+        return (int) id;
+    }
+}
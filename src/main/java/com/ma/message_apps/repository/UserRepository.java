@@ -1,14 +1,20 @@
 package com.ma.message_apps.repository;
+import com.ma.message_apps.dto.UserSummaryDto;
 import com.ma.message_apps.entity.User;
 import com.ma.message_apps.enumDto.UserStatus;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Integer> {
@@ -55,16 +61,41 @@ public interface UserRepository extends JpaRepository<User, Integer> {
     @Query("UPDATE User u SET u.status = :status WHERE u.userId = :userId")
     void updateUserStatus(@Param("userId") Integer userId, @Param("status") UserStatus status);
 
+    /**
+     * Set every user's status in a single set-based update
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.status = :status WHERE u.status IS NULL OR u.status <> :status")
+    int resetAllStatuses(@Param("status") UserStatus status);
+
     /**
      * Find users who are friends with the given user
      */
-    @Query("SELECT u FROM User u WHERE u.userId IN " +
-           "(SELECT CASE WHEN fr.sender.userId = :userId THEN fr.receiver.userId " +
-           "ELSE fr.sender.userId END " +
-           "FROM FriendRequests fr " +
-           "WHERE (fr.sender.userId = :userId OR fr.receiver.userId = :userId) " +
-           "AND fr.status = 'ACCEPTED')")
+    @Query("SELECT u FROM Friendship f JOIN f.friend u WHERE f.id.userId = :userId")
     List<User> findFriendsByUserId(@Param("userId") Integer userId);
 
     List<User> findByUsernameContainingOrEmailContaining(String query, String query1);
+
+    /**
+     * First page of user summaries in ID order
+     */
+    @Query("SELECT new com.ma.message_apps.dto.UserSummaryDto(u.userId, u.username, u.email, u.status, u.createdAt) " +
+           "FROM User u ORDER BY u.userId")
+    List<UserSummaryDto> findSummaries(Pageable pageable);
+
+    /**
+     * Page of user summaries following the given ID
+     * Seeks on the primary key, so every page costs the same however deep it is.
+     */
+    @Query("SELECT new com.ma.message_apps.dto.UserSummaryDto(u.userId, u.username, u.email, u.status, u.createdAt) " +
+           "FROM User u WHERE u.userId > :afterId ORDER BY u.userId")
+    List<UserSummaryDto> findSummariesAfter(@Param("afterId") Integer afterId, Pageable pageable);
+
+    /**
+     * Stream the searchable fields of every user as (userId, username, email)
+     */
+    @Query("SELECT u.userId, u.username, u.email FROM User u")
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    Stream<Object[]> streamSearchFields();
 }
@@ -1,16 +1,23 @@
 package com.ma.message_apps.restcontroller;
 
 import com.ma.message_apps.dto.UserDto;
+import com.ma.message_apps.exception.ServiceOverloadedException;
+import com.ma.message_apps.security.AuthProperties;
+import com.ma.message_apps.security.SessionTokenService;
 import com.ma.message_apps.service.UserService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseCookie;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -22,6 +29,12 @@ public class AuthController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private SessionTokenService sessionTokenService;
+
+    @Autowired
+    private AuthProperties authProperties;
+
     /**
      * User registration endpoint
      */
@@ -40,6 +53,12 @@ public class AuthController {
             response.put("user", registeredUser);
             return ResponseEntity.ok(response);
 
+        } catch (ServiceOverloadedException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(response);
         } catch (RuntimeException e) {
             response.put("success", false);
             response.put("message", e.getMessage());
@@ -60,16 +79,15 @@ public class AuthController {
         try {
             // Authenticate user
             UserDto authenticatedUser = userService.authenticateUser(username, passwordHash);
-
-            // Create a session and store user details
-            HttpSession session = request.getSession(true);
-            session.setAttribute("loggedInUser", authenticatedUser);
-            session.setAttribute("userId", authenticatedUser.getUserId());
-            session.setAttribute("username", authenticatedUser.getUsername());
+            startSession(authenticatedUser, request, response);
 
             // Perform immediate redirect to dashboard
             response.sendRedirect("/dashboard");
 
+        } catch (ServiceOverloadedException e) {
+            // Shed the login rather than redirecting, so clients can back off and retry
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), e.getMessage());
         } catch (RuntimeException e) {
             // In case of error, redirect to login page with error message
             response.sendRedirect("/login?error=" + e.getMessage());
@@ -95,19 +113,53 @@ public class AuthController {
         }
     }
 
+    /**
+     * Token login endpoint for API clients, returns a signed token to send as a Bearer header
+     */
+    @PostMapping("/token")
+    public ResponseEntity<Map<String, Object>> issueToken(
+            @RequestParam String username,
+            @RequestParam String passwordHash) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            UserDto authenticatedUser = userService.authenticateUser(username, passwordHash);
+            SessionTokenService.IssuedToken token =
+                    sessionTokenService.issue(authenticatedUser.getUserId(), authenticatedUser.getUsername());
+
+            response.put("success", true);
+            response.put("token", token.getToken());
+            response.put("tokenType", "Bearer");
+            response.put("expiresAt", token.getExpiresAt());
+            response.put("userId", authenticatedUser.getUserId());
+            return ResponseEntity.ok(response);
+        } catch (ServiceOverloadedException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(response);
+        } catch (RuntimeException e) {
+            response.put("success", false);
+            response.put("message", "Invalid username or password");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+    }
+
     /**
      * Logout endpoint
      */
     @PostMapping("/logout")
-    public ResponseEntity<Map<String, Object>> logout(HttpSession session) {
+    public ResponseEntity<Map<String, Object>> logout(HttpSession session, HttpServletResponse httpResponse) {
         Map<String, Object> response = new HashMap<>();
 
         try {
             // Get user before invalidating session
             UserDto user = (UserDto) session.getAttribute("loggedInUser");
 
-            // Invalidate session
+            // Invalidate session and drop any token cookie; tokens themselves stay valid until expiry
             session.invalidate();
+            httpResponse.addHeader(HttpHeaders.SET_COOKIE, tokenCookie("", Duration.ZERO).toString());
 
             // Update user status if needed
             if (user != null) {
@@ -137,18 +189,44 @@ public class AuthController {
         try {
             // Authenticate user
             UserDto authenticatedUser = userService.authenticateUser(username, passwordHash);
-
-            // Create a session and store user details
-            HttpSession session = request.getSession(true);
-            session.setAttribute("loggedInUser", authenticatedUser);
-            session.setAttribute("userId", authenticatedUser.getUserId());
-            session.setAttribute("username", authenticatedUser.getUsername());
+            startSession(authenticatedUser, request, response);
 
             // Perform immediate redirect to dashboard
             response.sendRedirect("/dashboard");
+        } catch (ServiceOverloadedException e) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), e.getMessage());
         } catch (RuntimeException e) {
             // In case of error, redirect to login page with error message
             response.sendRedirect("/login?error=true");
         }
     }
+
+    /**
+     * Remember a logged-in user, either in a servlet session or in a signed token cookie
+     */
+    private void startSession(UserDto user, HttpServletRequest request, HttpServletResponse response) {
+        if (authProperties.isStateless()) {
+            SessionTokenService.IssuedToken token = sessionTokenService.issue(user.getUserId(), user.getUsername());
+            response.addHeader(HttpHeaders.SET_COOKIE, tokenCookie(token.getToken(), authProperties.getTokenTtl()).toString());
+            return;
+        }
+
+        // The session keeps only what pages need; never the password hash
+        user.setPasswordHash(null);
+        HttpSession session = request.getSession(true);
+        session.setAttribute("loggedInUser", user);
+        session.setAttribute("userId", user.getUserId());
+        session.setAttribute("username", user.getUsername());
+    }
+
+    private ResponseCookie tokenCookie(String value, Duration maxAge) {
+        return ResponseCookie.from(AuthProperties.TOKEN_COOKIE, value)
+                .httpOnly(true)
+                .secure(authProperties.isSecureCookie())
+                .sameSite("Lax")
+                .path("/")
+                .maxAge(maxAge)
+                .build();
+    }
 }
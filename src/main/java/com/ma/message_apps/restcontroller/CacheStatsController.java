@@ -0,0 +1,44 @@
+package com.ma.message_apps.restcontroller;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.ma.message_apps.cache.UserCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * REST controller exposing in-memory cache statistics
+ */
+@RestController
+@RequestMapping("/api/cache")
+public class CacheStatsController {
+
+    private final UserCache userCache;
+
+    @Autowired
+    public CacheStatsController(UserCache userCache) {
+        this.userCache = userCache;
+    }
+
+    /**
+     * Get hit, miss and eviction statistics of the user cache
+     */
+    @GetMapping("/users")
+    public ResponseEntity<Map<String, Object>> getUserCacheStats() {
+        CacheStats stats = userCache.stats();
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("success", true);
+        response.put("size", userCache.size());
+        response.put("hitCount", stats.hitCount());
+        response.put("missCount", stats.missCount());
+        response.put("hitRate", stats.hitRate());
+        response.put("evictionCount", stats.evictionCount());
+        return ResponseEntity.ok(response);
+    }
+}
@@ -1,6 +1,5 @@
 package com.ma.message_apps.restcontroller;
 
-import com.ma.message_apps.dto.FriendRequestsDto;
 import com.ma.message_apps.service.FriendRequestService;
 import jakarta.servlet.http.HttpSession;
 import lombok.extern.slf4j.Slf4j;
@@ -30,56 +29,58 @@ public class FriendRequestRestController {
     }
 
     /**
-     * Get all friend requests for the current user (from session)
+     * Get a page of pending friend requests for the current user (from session)
      */
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getAllFriendRequests(HttpSession session) {
-        Map<String, Object> response = new HashMap<>();
-
-        try {
-            // Get user ID from session
-            Object userIdObj = session.getAttribute("userId");
-
-            if (userIdObj != null) {
-                Integer userId = (Integer) userIdObj;
-                List<FriendRequestsDto> requests = friendRequestService.getFriendRequestsForUser(userId);
+    public ResponseEntity<Map<String, Object>> getAllFriendRequests(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            HttpSession session) {
+        Integer userId = (Integer) session.getAttribute("userId");
+
+        if (userId == null) {
+            // Return empty list if no user in session
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("requests", Collections.emptyList());
+            return ResponseEntity.ok(response);
+        }
 
-                response.put("success", true);
-                response.put("requests", requests);
-            } else {
-                // Return empty list if no user in session
-                response.put("success", true);
-                response.put("requests", Collections.emptyList());
-            }
+        Map<String, Object> result = friendRequestService.getPendingInbox(userId, cursor, limit);
+        boolean isSuccess = (boolean) result.getOrDefault("success", false);
+        return ResponseEntity.status(isSuccess ? HttpStatus.OK : HttpStatus.BAD_REQUEST)
+                .body(result);
+    }
 
-            return ResponseEntity.ok(response);
+    /**
+     * Get the number of pending friend requests for the current user (from session)
+     */
+    @GetMapping("/pending-count")
+    public ResponseEntity<Map<String, Object>> getPendingCount(HttpSession session) {
+        Integer userId = (Integer) session.getAttribute("userId");
 
-        } catch (Exception e) {
-            log.error("Error fetching friend requests", e);
+        if (userId == null) {
+            Map<String, Object> response = new HashMap<>();
             response.put("success", false);
-            response.put("error", "Error fetching friend requests: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+            response.put("error", "No authenticated user found");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
         }
+
+        return ResponseEntity.ok(friendRequestService.getPendingCount(userId));
     }
 
     /**
-     * Get friend requests for a specific user
+     * Get a page of pending friend requests for a specific user
      */
     @GetMapping("/{userId}")
-    public ResponseEntity<Map<String, Object>> getFriendRequests(@PathVariable Integer userId) {
-        try {
-            List<FriendRequestsDto> requests = friendRequestService.getFriendRequestsForUser(userId);
-            return ResponseEntity.ok(Map.of(
-                "success", true,
-                "requests", requests
-            ));
-        } catch (Exception e) {
-            log.error("Error fetching friend requests for user {}", userId, e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
-                "success", false,
-                "error", "Error fetching friend requests: " + e.getMessage()
-            ));
-        }
+    public ResponseEntity<Map<String, Object>> getFriendRequests(
+            @PathVariable Integer userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        Map<String, Object> result = friendRequestService.getPendingInbox(userId, cursor, limit);
+        boolean isSuccess = (boolean) result.getOrDefault("success", false);
+        return ResponseEntity.status(isSuccess ? HttpStatus.OK : HttpStatus.BAD_REQUEST)
+                .body(result);
     }
 
     /**
@@ -127,4 +128,37 @@ public class FriendRequestRestController {
         return ResponseEntity.status(isSuccess ? HttpStatus.OK : HttpStatus.BAD_REQUEST)
                 .body(result);
     }
+
+    /**
+     * Accept several friend requests at once
+     */
+    @PostMapping("/bulk/accept")
+    public ResponseEntity<Map<String, Object>> acceptFriendRequests(@RequestBody List<Integer> requestIds) {
+        Map<String, Object> result = friendRequestService.acceptFriendRequests(requestIds);
+        boolean isSuccess = (boolean) result.getOrDefault("success", false);
+        return ResponseEntity.status(isSuccess ? HttpStatus.OK : HttpStatus.BAD_REQUEST)
+                .body(result);
+    }
+
+    /**
+     * Reject several friend requests at once
+     */
+    @PostMapping("/bulk/reject")
+    public ResponseEntity<Map<String, Object>> rejectFriendRequests(@RequestBody List<Integer> requestIds) {
+        Map<String, Object> result = friendRequestService.rejectFriendRequests(requestIds);
+        boolean isSuccess = (boolean) result.getOrDefault("success", false);
+        return ResponseEntity.status(isSuccess ? HttpStatus.OK : HttpStatus.BAD_REQUEST)
+                .body(result);
+    }
+
+    /**
+     * Cancel several sent friend requests at once
+     */
+    @PostMapping("/bulk/cancel")
+    public ResponseEntity<Map<String, Object>> cancelFriendRequests(@RequestBody List<Integer> requestIds) {
+        Map<String, Object> result = friendRequestService.cancelFriendRequests(requestIds);
+        boolean isSuccess = (boolean) result.getOrDefault("success", false);
+        return ResponseEntity.status(isSuccess ? HttpStatus.OK : HttpStatus.BAD_REQUEST)
+                .body(result);
+    }
 }
@@ -1,12 +1,17 @@
 package com.ma.message_apps.restcontroller;
 
+import com.ma.message_apps.cache.ResourceVersions;
 import com.ma.message_apps.dto.UserDto;
+import com.ma.message_apps.service.FriendRequestService;
 import com.ma.message_apps.service.FriendService;
+import com.ma.message_apps.service.FriendSuggestionService;
+import com.ma.message_apps.util.ConditionalRequests;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -19,12 +24,31 @@ public class FriendsController {
     @Autowired
     private FriendService friendService;
 
+    @Autowired
+    private FriendSuggestionService friendSuggestionService;
+
+    @Autowired
+    private FriendRequestService friendRequestService;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
     /**
      * Get user's friend list
+     * Pass include=presence to embed each friend's status, last-seen time and unread count
      */
     @GetMapping("/list")
-    public ResponseEntity<Map<String, Object>> getFriendsList(HttpSession session) {
-        Map<String, Object> response = friendService.getFriendsList(session, null);
+    public ResponseEntity<Map<String, Object>> getFriendsList(
+            @RequestParam(required = false) String include,
+            HttpSession session,
+            ServletWebRequest webRequest) {
+        boolean includePresence = "presence".equalsIgnoreCase(include);
+        Integer userId = (Integer) session.getAttribute("userId");
+        if (userId != null && ConditionalRequests.checkNotModifiedForSession(
+                webRequest, resourceVersions.friendListTag(userId, includePresence))) {
+            return null;
+        }
+        Map<String, Object> response = friendService.getFriendsList(session, null, includePresence);
         boolean isSuccess = (boolean) response.getOrDefault("success", false);
         return ResponseEntity.status(isSuccess ? HttpStatus.OK : HttpStatus.BAD_REQUEST)
                 .body(response);
@@ -36,13 +60,60 @@ public class FriendsController {
     @GetMapping("/list/{userId}")
     public ResponseEntity<Map<String, Object>> getFriendsListForUser(
             @PathVariable Integer userId,
-            HttpSession session) {
+            HttpSession session,
+            ServletWebRequest webRequest) {
+        if (ConditionalRequests.checkNotModified(webRequest, resourceVersions.friendListTag(userId, false))) {
+            return null;
+        }
         Map<String, Object> response = friendService.getFriendsList(session, userId);
         boolean isSuccess = (boolean) response.getOrDefault("success", false);
         return ResponseEntity.status(isSuccess ? HttpStatus.OK : HttpStatus.BAD_REQUEST)
                 .body(response);
     }
 
+    /**
+     * Get "people you may know" suggestions for the current user
+     */
+    @GetMapping("/suggestions")
+    public ResponseEntity<Map<String, Object>> getSuggestions(
+            @RequestParam(required = false) Integer limit,
+            HttpSession session) {
+        Integer userId = (Integer) session.getAttribute("userId");
+        if (userId == null) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("error", "No authenticated user found");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+
+        Map<String, Object> response = friendSuggestionService.getSuggestions(userId, limit);
+        boolean isSuccess = (boolean) response.getOrDefault("success", false);
+        return ResponseEntity.status(isSuccess ? HttpStatus.OK : HttpStatus.BAD_REQUEST)
+                .body(response);
+    }
+
+    /**
+     * Get the friends the current user has in common with another user
+     */
+    @GetMapping("/mutual/{otherUserId}")
+    public ResponseEntity<Map<String, Object>> getMutualFriends(
+            @PathVariable Integer otherUserId,
+            @RequestParam(required = false) Integer limit,
+            HttpSession session) {
+        Integer userId = (Integer) session.getAttribute("userId");
+        if (userId == null) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("error", "No authenticated user found");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+
+        Map<String, Object> response = friendService.getMutualFriends(userId, otherUserId, limit);
+        boolean isSuccess = (boolean) response.getOrDefault("success", false);
+        return ResponseEntity.status(isSuccess ? HttpStatus.OK : HttpStatus.BAD_REQUEST)
+                .body(response);
+    }
+
     /**
      * Check if users are friends
      */
@@ -63,6 +134,27 @@ public class FriendsController {
         }
     }
 
+    /**
+     * Remove a friend of the current user
+     */
+    @DeleteMapping("/{friendId}")
+    public ResponseEntity<Map<String, Object>> unfriend(
+            @PathVariable Integer friendId,
+            HttpSession session) {
+        Integer userId = (Integer) session.getAttribute("userId");
+        if (userId == null) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("error", "No authenticated user found");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+
+        Map<String, Object> response = friendService.unfriend(userId, friendId);
+        boolean isSuccess = (boolean) response.getOrDefault("success", false);
+        return ResponseEntity.status(isSuccess ? HttpStatus.OK : HttpStatus.BAD_REQUEST)
+                .body(response);
+    }
+
     /**
      * Find a user by username or email
      */
@@ -88,10 +180,13 @@ public class FriendsController {
     }
 
     /**
-     * Get friend requests for the current user
+     * Get a page of pending friend requests for the current user, newest first
      */
     @GetMapping("/requests")
-    public ResponseEntity<Map<String, Object>> getFriendRequests(HttpSession session) {
+    public ResponseEntity<Map<String, Object>> getFriendRequests(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            HttpSession session) {
         Integer userId = (Integer) session.getAttribute("userId");
         if (userId == null) {
             Map<String, Object> response = new HashMap<>();
@@ -100,12 +195,28 @@ public class FriendsController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
         }
 
-        Map<String, Object> response = friendService.getFriendRequests(userId);
+        Map<String, Object> response = friendRequestService.getPendingInbox(userId, cursor, limit);
         boolean isSuccess = (boolean) response.getOrDefault("success", false);
         return ResponseEntity.status(isSuccess ? HttpStatus.OK : HttpStatus.BAD_REQUEST)
                 .body(response);
     }
 
+    /**
+     * Get the number of pending friend requests for the current user
+     */
+    @GetMapping("/requests/count")
+    public ResponseEntity<Map<String, Object>> getPendingRequestCount(HttpSession session) {
+        Integer userId = (Integer) session.getAttribute("userId");
+        if (userId == null) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("error", "No authenticated user found");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+
+        return ResponseEntity.ok(friendRequestService.getPendingCount(userId));
+    }
+
     /**
      * Accept a friend request
      */
@@ -1,9 +1,12 @@
 package com.ma.message_apps.restcontroller;
 
+import com.ma.message_apps.cache.ResourceVersions;
 import com.ma.message_apps.dto.MessageDto;
 import com.ma.message_apps.dto.UserDto;
 import com.ma.message_apps.exception.UnauthorizedAccessException;
+import com.ma.message_apps.service.AsyncMessagingService;
 import com.ma.message_apps.service.MessagingService;
+import com.ma.message_apps.util.ConditionalRequests;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
 import lombok.extern.slf4j.Slf4j;
@@ -11,9 +14,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * REST controller for messaging functionality
@@ -24,11 +29,20 @@ import java.util.Map;
 @Slf4j
 public class MessagingRestController {
 
+    private static final String COMPACT_FORMAT = "compact";
+
     private final MessagingService messagingService;
+    private final AsyncMessagingService asyncMessagingService;
+    private final ResourceVersions resourceVersions;
 
     @Autowired
-    public MessagingRestController(MessagingService messagingService) {
+    public MessagingRestController(
+            MessagingService messagingService,
+            AsyncMessagingService asyncMessagingService,
+            ResourceVersions resourceVersions) {
         this.messagingService = messagingService;
+        this.asyncMessagingService = asyncMessagingService;
+        this.resourceVersions = resourceVersions;
     }
 
     /**
@@ -84,18 +98,29 @@ public class MessagingRestController {
      *
      * @param userId1 First user ID
      * @param userId2 Second user ID
+     * @param format "compact" for IDs, epoch-millis times and a user dictionary instead of full users
      * @param session HTTP session for authorization
      * @param request HTTP request for audit logging
-     * @return List of message DTOs
+     * @param webRequest Current request, for If-None-Match handling
+     * @return List of message DTOs, or a compact message list; 304 if the client's copy is current
      */
     @GetMapping("/messages/{userId1}/{userId2}")
-    public ResponseEntity<List<MessageDto>> getMessages(
+    public ResponseEntity<?> getMessages(
             @PathVariable Integer userId1,
             @PathVariable Integer userId2,
+            @RequestParam(required = false) String format,
             HttpSession session,
-            HttpServletRequest request) {
+            HttpServletRequest request,
+            ServletWebRequest webRequest) {
         try {
+            boolean compact = COMPACT_FORMAT.equalsIgnoreCase(format);
+            if (ConditionalRequests.checkNotModifiedForSession(webRequest, resourceVersions.conversationTag(userId1, userId2, compact))) {
+                return null;
+            }
             log.info("Retrieving messages between users {} and {}", userId1, userId2);
+            if (compact) {
+                return ResponseEntity.ok(messagingService.getCompactMessagesBetweenUsers(userId1, userId2, session));
+            }
             List<MessageDto> messages = messagingService.getMessagesBetweenUsers(userId1, userId2, session, request);
             return ResponseEntity.ok(messages);
         } catch (UnauthorizedAccessException e) {
@@ -108,9 +133,9 @@ public class MessagingRestController {
     }
 
     /**
-     * Sends a message from one user to another
+     * Sends a message from the current user to another
      *
-     * @param fromUserId Sender user ID
+     * @param fromUserId Sender user ID (optional; must match the session user when given)
      * @param toUserId Recipient user ID
      * @param content Message content
      * @param session HTTP session for authorization
@@ -119,12 +144,43 @@ public class MessagingRestController {
      */
     @PostMapping("/messages/send")
     public ResponseEntity<Map<String, Object>> sendMessage(
-            @RequestParam Integer fromUserId,
+            @RequestParam(required = false) Integer fromUserId,
             @RequestParam Integer toUserId,
             @RequestParam String content,
             HttpSession session,
             HttpServletRequest request) {
         Map<String, Object> result = messagingService.sendMessage(fromUserId, toUserId, content, session, request);
+        return toSendResponse(result);
+    }
+
+    /**
+     * Sends a message without holding a servlet thread while it is validated and stored
+     * Takes the same parameters and returns the same responses as /messages/send.
+     *
+     * @param fromUserId Sender user ID (optional; must match the session user when given)
+     * @param toUserId Recipient user ID
+     * @param content Message content
+     * @param session HTTP session for authorization
+     * @return Future of the success status; 503 if messaging is saturated or times out
+     */
+    @PostMapping("/messages/send-async")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> sendMessageAsync(
+            @RequestParam(required = false) Integer fromUserId,
+            @RequestParam Integer toUserId,
+            @RequestParam String content,
+            HttpSession session) {
+        Integer senderId;
+        try {
+            // Resolved here, the session must not be used from other threads
+            senderId = messagingService.resolveSenderId(fromUserId, session);
+        } catch (UnauthorizedAccessException e) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("success", false, "error", e.getMessage())));
+        }
+        return asyncMessagingService.sendMessage(senderId, toUserId, content).thenApply(this::toSendResponse);
+    }
+
+    private ResponseEntity<Map<String, Object>> toSendResponse(Map<String, Object> result) {
         boolean isSuccess = (boolean) result.getOrDefault("success", false);
 
         HttpStatus status;
@@ -148,17 +204,22 @@ public class MessagingRestController {
      * Gets all messages for a user (both sent and received)
      *
      * @param userId User ID
+     * @param format "compact" for IDs, epoch-millis times and a user dictionary instead of full users
      * @param session HTTP session for authorization
      * @param request HTTP request for audit logging
-     * @return List of message DTOs
+     * @return List of message DTOs, or a compact message list
      */
     @GetMapping("/messages/all/{userId}")
-    public ResponseEntity<List<MessageDto>> getAllMessagesForUser(
+    public ResponseEntity<?> getAllMessagesForUser(
             @PathVariable Integer userId,
+            @RequestParam(required = false) String format,
             HttpSession session,
             HttpServletRequest request) {
         try {
             log.info("Retrieving all messages for user {}", userId);
+            if (COMPACT_FORMAT.equalsIgnoreCase(format)) {
+                return ResponseEntity.ok(messagingService.getCompactMessagesForUser(userId));
+            }
             List<MessageDto> messages = messagingService.getAllMessagesForUser(userId, session, request);
             return ResponseEntity.ok(messages);
         } catch (UnauthorizedAccessException e) {
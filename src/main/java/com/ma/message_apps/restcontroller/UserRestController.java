@@ -1,15 +1,18 @@
 package com.ma.message_apps.restcontroller;
 
+import com.ma.message_apps.cache.ResourceVersions;
 import com.ma.message_apps.dto.UserDto;
 import com.ma.message_apps.dto.UserStatusDto;
 import com.ma.message_apps.enumDto.UserStatus;
 import com.ma.message_apps.exception.ResourceNotFoundException;
 import com.ma.message_apps.service.UserService;
+import com.ma.message_apps.util.ConditionalRequests;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.util.List;
 import java.util.Map;
@@ -24,10 +27,12 @@ import java.util.Map;
 public class UserRestController {
 
     private final UserService userService;
+    private final ResourceVersions resourceVersions;
 
     @Autowired
-    public UserRestController(UserService userService) {
+    public UserRestController(UserService userService, ResourceVersions resourceVersions) {
         this.userService = userService;
+        this.resourceVersions = resourceVersions;
     }
 
     /**
@@ -53,14 +58,34 @@ public class UserRestController {
         }
     }
 
+    /**
+     * Search users by username or email, best matches first
+     *
+     * @param query Search text
+     * @param limit Maximum number of results
+     * @return Ranked users
+     */
+    @GetMapping("/search")
+    public ResponseEntity<Map<String, Object>> searchUsers(
+            @RequestParam("query") String query,
+            @RequestParam(required = false) Integer limit) {
+        Map<String, Object> result = userService.searchUsers(query, limit);
+        boolean isSuccess = (boolean) result.getOrDefault("success", false);
+        return ResponseEntity.status(isSuccess ? HttpStatus.OK : HttpStatus.BAD_REQUEST).body(result);
+    }
+
     /**
      * Get user by ID
      *
      * @param userId User ID
-     * @return User DTO
+     * @param webRequest Current request, for If-None-Match handling
+     * @return User DTO, or 304 if the client's copy is current
      */
     @GetMapping("/{userId}")
-    public ResponseEntity<?> getUserById(@PathVariable Integer userId) {
+    public ResponseEntity<?> getUserById(@PathVariable Integer userId, ServletWebRequest webRequest) {
+        if (ConditionalRequests.checkNotModified(webRequest, resourceVersions.userTag(userId))) {
+            return null;
+        }
         try {
             UserDto user = userService.getUserById(userId);
             return ResponseEntity.ok(Map.of(
@@ -84,23 +109,18 @@ public class UserRestController {
     }
 
     /**
-     * Get all users with optional pagination
+     * Get a page of users in ID order
      *
-     * @param page Page number (optional)
+     * @param afterId Last user ID of the previous page (optional)
      * @param size Page size (optional)
-     * @return List of users
+     * @return Users, the ID to continue after, and the total number of users
      */
     @GetMapping
     public ResponseEntity<?> getAllUsers(
-            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer afterId,
             @RequestParam(required = false) Integer size) {
         try {
-            List<UserDto> users = userService.getAllUsers(page, size);
-            return ResponseEntity.ok(Map.of(
-                    "success", true,
-                    "users", users,
-                    "count", users.size()
-            ));
+            return ResponseEntity.ok(userService.getUsersPage(afterId, size));
         } catch (Exception e) {
             log.error("Error retrieving users", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -143,10 +163,14 @@ public class UserRestController {
     /**
      * Get the status of a user
      * @param userId User ID
-     * @return Status information for the user
+     * @param webRequest Current request, for If-None-Match handling
+     * @return Status information for the user, or 304 if the client's copy is current
      */
     @GetMapping("/{userId}/status")
-    public ResponseEntity<?> getUserStatus(@PathVariable Integer userId) {
+    public ResponseEntity<?> getUserStatus(@PathVariable Integer userId, ServletWebRequest webRequest) {
+        if (ConditionalRequests.checkNotModified(webRequest, resourceVersions.userTag(userId))) {
+            return null;
+        }
         try {
             UserStatusDto status = userService.getUserStatus(userId);
             return ResponseEntity.ok(status);
@@ -192,10 +216,14 @@ public class UserRestController {
 
     /**
      * Get status information for all users
-     * @return List of user status DTOs
+     * @param webRequest Current request, for If-None-Match handling
+     * @return List of user status DTOs, or 304 if the client's copy is current
      */
     @GetMapping("/statuses")
-    public ResponseEntity<?> getAllUserStatuses() {
+    public ResponseEntity<?> getAllUserStatuses(ServletWebRequest webRequest) {
+        if (ConditionalRequests.checkNotModified(webRequest, resourceVersions.statusesTag())) {
+            return null;
+        }
         try {
             List<UserStatusDto> statuses = userService.getAllUserStatuses();
             return ResponseEntity.ok(statuses);
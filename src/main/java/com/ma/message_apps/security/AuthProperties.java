@@ -0,0 +1,47 @@
+package com.ma.message_apps.security;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Authentication settings shared by the login endpoints and the token filter
+ */
+@Component
+@Getter
+public class AuthProperties {
+
+    public static final String TOKEN_COOKIE = "MA_TOKEN";
+
+    /**
+     * How a successful login is remembered
+     */
+    public enum Mode {
+        /** Servlet session holding the user, the original behaviour */
+        SESSION,
+        /** Signed token cookie, no server-side state */
+        TOKEN
+    }
+
+    private final Mode mode;
+    private final Duration tokenTtl;
+    private final String tokenKeys;
+    private final boolean secureCookie;
+
+    public AuthProperties(
+            @Value("${app.auth.mode:session}") String mode,
+            @Value("${app.auth.token.ttl:12h}") Duration tokenTtl,
+            @Value("${app.auth.token.keys:}") String tokenKeys,
+            @Value("${app.auth.token.secure-cookie:false}") boolean secureCookie) {
+        this.mode = Mode.valueOf(mode.trim().toUpperCase());
+        this.tokenTtl = tokenTtl;
+        this.tokenKeys = tokenKeys;
+        this.secureCookie = secureCookie;
+    }
+
+    public boolean isStateless() {
+        return mode == Mode.TOKEN;
+    }
+}
@@ -0,0 +1,179 @@
+package com.ma.message_apps.security;
+
+import com.ma.message_apps.exception.ServiceOverloadedException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * BCrypt password hashing on a small dedicated pool
+ * Hashing is deliberately CPU-heavy, so it runs on at most {@code app.password.threads} threads
+ * with a short bounded queue; when both are full, or a caller would wait longer than
+ * {@code app.password.timeout}, the request is shed with a {@link ServiceOverloadedException}
+ * instead of tying up request threads behind a login storm.
+ * Stored values that are not BCrypt hashes are treated as legacy plaintext passwords.
+ */
+@Component
+@Slf4j
+public class PasswordHasher {
+
+    private static final Pattern BCRYPT_HASH = Pattern.compile("^\\$2[aby]\\$\\d\\d\\$[./0-9A-Za-z]{53}$");
+    private static final long RETRY_AFTER_SECONDS = 1;
+
+    private final BCryptPasswordEncoder encoder;
+    private final int cost;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+    private final AtomicLong rejected = new AtomicLong();
+    // Verified against when there is no stored hash, so unknown users cost as much as known ones
+    private final String dummyHash;
+
+    public PasswordHasher(
+            @Value("${app.password.bcrypt-cost:10}") int cost,
+            @Value("${app.password.threads:0}") int threads,
+            @Value("${app.password.queue-capacity:64}") int queueCapacity,
+            @Value("${app.password.timeout:2s}") Duration timeout) {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.cost = cost;
+        this.encoder = new BCryptPasswordEncoder(cost);
+        this.timeoutMillis = timeout.toMillis();
+        this.dummyHash = encoder.encode("dummy-password");
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        log.info("Password hashing uses bcrypt cost {} on {} threads, queue {}", cost, poolSize, queueCapacity);
+    }
+
+    /**
+     * Hash a raw password
+     *
+     * @param rawPassword Password as entered by the user
+     * @return BCrypt hash
+     * @throws ServiceOverloadedException if the hashing pool is saturated
+     */
+    public String hash(String rawPassword) {
+        return submit(() -> encoder.encode(rawPassword));
+    }
+
+    /**
+     * Check a raw password against a stored value
+     * BCrypt hashes are verified on the hashing pool; legacy plaintext values are compared
+     * in constant time on the caller's thread.
+     *
+     * @param rawPassword Password as entered by the user
+     * @param stored Stored hash or legacy plaintext password
+     * @return true if the password matches
+     * @throws ServiceOverloadedException if the hashing pool is saturated
+     */
+    public boolean matches(String rawPassword, String stored) {
+        if (rawPassword == null || stored == null) {
+            return false;
+        }
+        if (!isHashed(stored)) {
+            return MessageDigest.isEqual(
+                    rawPassword.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+        }
+        return submit(() -> encoder.matches(rawPassword, stored));
+    }
+
+    /**
+     * Spend the time of a BCrypt verification when there is no stored value to check against
+     * A login for an unknown user then takes as long as one with a wrong password, so response
+     * times do not reveal which usernames exist.
+     *
+     * @param rawPassword Password as entered by the user
+     * @throws ServiceOverloadedException if the hashing pool is saturated
+     */
+    public void simulateMatch(String rawPassword) {
+        String password = rawPassword != null ? rawPassword : "";
+        submit(() -> encoder.matches(password, dummyHash));
+    }
+
+    /**
+     * Whether a stored value should be replaced by a fresh hash after a successful login,
+     * either because it is legacy plaintext or because it was hashed at a different cost
+     */
+    public boolean needsRehash(String stored) {
+        if (!isHashed(stored)) {
+            return true;
+        }
+        return Integer.parseInt(stored.substring(4, 6)) != cost;
+    }
+
+    public boolean isHashed(String stored) {
+        return stored != null && BCRYPT_HASH.matcher(stored).matches();
+    }
+
+    public int getCost() {
+        return cost;
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    private <T> T submit(Callable<T> work) {
+        Future<T> future;
+        try {
+            future = executor.submit(work);
+        } catch (RejectedExecutionException e) {
+            throw overloaded();
+        }
+
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            throw overloaded();
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    private ServiceOverloadedException overloaded() {
+        rejected.incrementAndGet();
+        return new ServiceOverloadedException("Too many concurrent logins, please retry shortly", RETRY_AFTER_SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,101 @@
+package com.ma.message_apps.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Accepts signed session tokens alongside servlet sessions
+ * When a request carries a valid token, either as a {@code Bearer} Authorization header or in
+ * the {@link AuthProperties#TOKEN_COOKIE} cookie, and has no logged-in servlet session, its
+ * {@code getSession} returns a {@link TokenSession} holding the token's user. Requests without a
+ * token, or with an invalid one, pass through unchanged.
+ */
+@Component
+public class SessionTokenFilter extends OncePerRequestFilter {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+    // Logins always start from a clean request so a stale token cannot shadow the new session
+    private static final Set<String> LOGIN_PATHS = Set.of("/api/auth/login", "/api/auth/direct-login", "/api/auth/token");
+
+    private final SessionTokenService tokenService;
+
+    public SessionTokenFilter(SessionTokenService tokenService) {
+        this.tokenService = tokenService;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return LOGIN_PATHS.contains(request.getRequestURI());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Optional<SessionTokenService.TokenClaims> claims = tokenService.verify(findToken(request));
+        if (claims.isEmpty()) {
+            chain.doFilter(request, response);
+            return;
+        }
+        chain.doFilter(new TokenRequest(request, claims.get()), response);
+    }
+
+    private static String findToken(HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header != null && header.startsWith(BEARER_PREFIX)) {
+            return header.substring(BEARER_PREFIX.length()).trim();
+        }
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (AuthProperties.TOKEN_COOKIE.equals(cookie.getName())) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    private static final class TokenRequest extends HttpServletRequestWrapper {
+
+        private final SessionTokenService.TokenClaims claims;
+        private TokenSession session;
+
+        TokenRequest(HttpServletRequest request, SessionTokenService.TokenClaims claims) {
+            super(request);
+            this.claims = claims;
+        }
+
+        @Override
+        public HttpSession getSession() {
+            return getSession(true);
+        }
+
+        @Override
+        public HttpSession getSession(boolean create) {
+            // A servlet session from a session-mode login takes precedence over the token
+            HttpSession existing = super.getSession(false);
+            if (existing != null && existing.getAttribute("userId") != null) {
+                return existing;
+            }
+            if (session == null) {
+                session = new TokenSession(getServletContext(), claims);
+            } else if (session.isInvalidated()) {
+                // Logged out during this request; later lookups see no token user, as with a servlet session
+                return super.getSession(create);
+            }
+            return session;
+        }
+    }
+}
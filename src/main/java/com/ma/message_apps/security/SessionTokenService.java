@@ -0,0 +1,168 @@
+package com.ma.message_apps.security;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Issues and verifies compact HMAC-signed session tokens
+ * A token is {@code keyId.userId.expiresAt.username.signature}, with the username and the
+ * HMAC-SHA256 signature base64url encoded, so verifying one needs neither the database nor a
+ * session store. The first configured key signs new tokens and every configured key verifies,
+ * so keys are rotated by putting a new key first and dropping the old one after a token lifetime.
+ */
+@Component
+@Slf4j
+public class SessionTokenService {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    @Value
+    public static class TokenClaims {
+        int userId;
+        String username;
+        long expiresAt;
+        String keyId;
+    }
+
+    @Value
+    public static class IssuedToken {
+        String token;
+        long expiresAt;
+    }
+
+    private final Map<String, SigningKey> keys;
+    private final SigningKey activeKey;
+    private final AuthProperties properties;
+
+    public SessionTokenService(AuthProperties properties) {
+        this.properties = properties;
+        this.keys = parseKeys(properties.getTokenKeys());
+        this.activeKey = keys.values().iterator().next();
+    }
+
+    /**
+     * Issue a token for a user, valid for the configured token lifetime
+     */
+    public IssuedToken issue(int userId, String username) {
+        long expiresAt = System.currentTimeMillis() / 1000 + properties.getTokenTtl().toSeconds();
+        String payload = activeKey.id + '.' + userId + '.' + expiresAt + '.'
+                + ENCODER.encodeToString(username.getBytes(StandardCharsets.UTF_8));
+        return new IssuedToken(payload + '.' + activeKey.sign(payload), expiresAt);
+    }
+
+    /**
+     * Verify a token's signature and expiry
+     *
+     * @param token Token as issued by {@link #issue}
+     * @return Claims of a valid token, empty if the token is malformed, forged, expired
+     *         or signed with a key that is no longer configured
+     */
+    public Optional<TokenClaims> verify(String token) {
+        if (token == null || token.length() > 512) {
+            return Optional.empty();
+        }
+        int signatureStart = token.lastIndexOf('.');
+        if (signatureStart < 0) {
+            return Optional.empty();
+        }
+        String payload = token.substring(0, signatureStart);
+        String[] parts = payload.split("\\.", -1);
+        if (parts.length != 4) {
+            return Optional.empty();
+        }
+
+        SigningKey key = keys.get(parts[0]);
+        if (key == null) {
+            return Optional.empty();
+        }
+        byte[] expected = key.sign(payload).getBytes(StandardCharsets.US_ASCII);
+        byte[] actual = token.substring(signatureStart + 1).getBytes(StandardCharsets.US_ASCII);
+        if (!MessageDigest.isEqual(expected, actual)) {
+            return Optional.empty();
+        }
+
+        try {
+            int userId = Integer.parseInt(parts[1]);
+            long expiresAt = Long.parseLong(parts[2]);
+            if (expiresAt <= System.currentTimeMillis() / 1000) {
+                return Optional.empty();
+            }
+            String username = new String(DECODER.decode(parts[3]), StandardCharsets.UTF_8);
+            return Optional.of(new TokenClaims(userId, username, expiresAt, key.id));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static Map<String, SigningKey> parseKeys(String configured) {
+        Map<String, SigningKey> parsed = new LinkedHashMap<>();
+        if (configured != null) {
+            for (String entry : configured.split(",")) {
+                String trimmed = entry.trim();
+                if (trimmed.isEmpty()) {
+                    continue;
+                }
+                int separator = trimmed.indexOf(':');
+                if (separator <= 0 || trimmed.indexOf('.') >= 0) {
+                    throw new IllegalArgumentException("Token keys must be 'id:base64secret', ids without dots");
+                }
+                byte[] secret = Base64.getDecoder().decode(trimmed.substring(separator + 1));
+                if (secret.length < 32) {
+                    throw new IllegalArgumentException("Token key " + trimmed.substring(0, separator)
+                            + " must be at least 256 bits");
+                }
+                String id = trimmed.substring(0, separator);
+                parsed.put(id, new SigningKey(id, secret));
+            }
+        }
+        if (parsed.isEmpty()) {
+            byte[] secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+            parsed.put("local", new SigningKey("local", secret));
+            log.warn("No app.auth.token.keys configured; using a random key, tokens will not survive "
+                    + "a restart or be accepted by other nodes");
+        }
+        return parsed;
+    }
+
+    private static final class SigningKey {
+        private final String id;
+        // Initialized once and cloned per use: cheaper than init, and unlike a ThreadLocal it
+        // does not build a new instance for every virtual thread
+        private final Mac prototype;
+
+        SigningKey(String id, byte[] secret) {
+            this.id = id;
+            try {
+                this.prototype = Mac.getInstance(ALGORITHM);
+                this.prototype.init(new SecretKeySpec(secret, ALGORITHM));
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HMAC-SHA256 is not available", e);
+            }
+        }
+
+        String sign(String payload) {
+            try {
+                Mac mac = (Mac) prototype.clone();
+                return ENCODER.encodeToString(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+            } catch (CloneNotSupportedException e) {
+                throw new IllegalStateException("HMAC-SHA256 implementation cannot be cloned", e);
+            }
+        }
+    }
+}
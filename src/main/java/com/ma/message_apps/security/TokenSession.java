@@ -0,0 +1,106 @@
+package com.ma.message_apps.security;
+
+import com.ma.message_apps.dto.UserDto;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpSession;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Request-scoped stand-in for an {@link HttpSession}, built from a verified session token
+ * It exposes the same "userId", "username" and "loggedInUser" attributes a login stores in a
+ * servlet session, so controllers and services work unchanged in either mode. Nothing is kept
+ * after the request; attributes set on it are discarded.
+ */
+class TokenSession implements HttpSession {
+
+    private final ServletContext servletContext;
+    private final SessionTokenService.TokenClaims claims;
+    private final long creationTime = System.currentTimeMillis();
+    private final Map<String, Object> attributes = new HashMap<>(4);
+    private boolean invalidated;
+
+    TokenSession(ServletContext servletContext, SessionTokenService.TokenClaims claims) {
+        this.servletContext = servletContext;
+        this.claims = claims;
+
+        UserDto user = new UserDto();
+        user.setUserId(claims.getUserId());
+        user.setUsername(claims.getUsername());
+        attributes.put("loggedInUser", user);
+        attributes.put("userId", claims.getUserId());
+        attributes.put("username", claims.getUsername());
+    }
+
+    boolean isInvalidated() {
+        return invalidated;
+    }
+
+    @Override
+    public long getCreationTime() {
+        return creationTime;
+    }
+
+    @Override
+    public String getId() {
+        return "token-" + claims.getKeyId() + "-" + claims.getUserId() + "-" + claims.getExpiresAt();
+    }
+
+    @Override
+    public long getLastAccessedTime() {
+        return creationTime;
+    }
+
+    @Override
+    public ServletContext getServletContext() {
+        return servletContext;
+    }
+
+    @Override
+    public void setMaxInactiveInterval(int interval) {
+        // Lifetime is fixed by the token expiry
+    }
+
+    @Override
+    public int getMaxInactiveInterval() {
+        return (int) Math.max(0, claims.getExpiresAt() - creationTime / 1000);
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        return Collections.enumeration(attributes.keySet());
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (value == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, value);
+        }
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        attributes.remove(name);
+    }
+
+    @Override
+    public void invalidate() {
+        invalidated = true;
+        attributes.clear();
+    }
+
+    @Override
+    public boolean isNew() {
+        return false;
+    }
+}
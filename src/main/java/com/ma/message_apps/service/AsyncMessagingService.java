@@ -0,0 +1,163 @@
+package com.ma.message_apps.service;
+
+import com.ma.message_apps.cache.UserCache;
+import com.ma.message_apps.config.AsyncConfig;
+import com.ma.message_apps.exception.ResourceNotFoundException;
+import com.ma.message_apps.exception.ServiceOverloadedException;
+import com.ma.message_apps.exception.UnauthorizedAccessException;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous variant of message sending
+ * The sender check, recipient check and friendship check run concurrently on the bounded
+ * messaging executor; the first failure, or the validation timeout, cancels the checks that have
+ * not started yet. The message is stored once all checks pass. Results use the same maps as
+ * {@link MessagingService#sendMessage}; timeouts and a saturated executor complete the future
+ * with a {@link ServiceOverloadedException}.
+ */
+@Service
+@Slf4j
+@Timed("service.invocations")
+public class AsyncMessagingService {
+
+    private final MessagingService messagingService;
+    private final FriendService friendService;
+    private final UserCache userCache;
+    private final Executor executor;
+    private final long timeoutMillis;
+
+    @Autowired
+    public AsyncMessagingService(
+            MessagingService messagingService,
+            FriendService friendService,
+            UserCache userCache,
+            @Qualifier(AsyncConfig.MESSAGING_EXECUTOR) Executor executor,
+            @Value("${app.messaging.async.timeout:5s}") Duration timeout) {
+        this.messagingService = messagingService;
+        this.friendService = friendService;
+        this.userCache = userCache;
+        this.executor = executor;
+        this.timeoutMillis = timeout.toMillis();
+    }
+
+    /**
+     * Send a message without blocking the caller
+     *
+     * @param senderId Sender user ID, already resolved from the session
+     * @param toUserId Recipient user ID
+     * @param content Message content
+     * @return Future of a map containing success status and message details
+     */
+    public CompletableFuture<Map<String, Object>> sendMessage(int senderId, Integer toUserId, String content) {
+        if (content == null || content.trim().isEmpty()) {
+            return CompletableFuture.completedFuture(error("Message content cannot be empty"));
+        }
+        if (toUserId == null) {
+            return CompletableFuture.completedFuture(error("Recipient not found with ID: null"));
+        }
+        log.info("Service: Sending message asynchronously from user {} to user {}", senderId, toUserId);
+
+        CompletableFuture<Void> validated;
+        try {
+            validated = allOrFirstFailure(
+                    check(() -> userCache.exists(senderId),
+                            () -> new ResourceNotFoundException("Sender not found with ID: " + senderId)),
+                    check(() -> userCache.exists(toUserId),
+                            () -> new ResourceNotFoundException("Recipient not found with ID: " + toUserId)),
+                    messagingService.isFriendshipRequired()
+                            ? check(() -> friendService.areFriends(senderId, toUserId),
+                                    () -> new UnauthorizedAccessException(MessagingService.NOT_FRIENDS_ERROR))
+                            : CompletableFuture.completedFuture(null))
+                    .orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(overloaded());
+        }
+
+        // Only validation is bounded by the timeout; once the insert starts it is allowed to finish
+        return validated
+                .thenApplyAsync(ignored -> messagingService.persistMessage(senderId, toUserId, content), executor)
+                .handle((sent, failure) -> {
+                    if (failure == null) {
+                        Map<String, Object> response = new HashMap<>();
+                        response.put("success", true);
+                        response.put("message", sent);
+                        return response;
+                    }
+                    Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                            ? failure.getCause() : failure;
+                    if (cause instanceof ResourceNotFoundException || cause instanceof UnauthorizedAccessException) {
+                        log.warn(cause.getMessage());
+                        return error(cause.getMessage());
+                    }
+                    if (cause instanceof TimeoutException || cause instanceof RejectedExecutionException) {
+                        throw overloaded();
+                    }
+                    log.error("Error sending message", cause);
+                    return error("Failed to send message: " + cause.getMessage());
+                });
+    }
+
+    private CompletableFuture<Void> check(Supplier<Boolean> condition, Supplier<RuntimeException> failure) {
+        return CompletableFuture.supplyAsync(condition, executor).thenAccept(passed -> {
+            if (!passed) {
+                throw failure.get();
+            }
+        });
+    }
+
+    /**
+     * Complete when every future has completed, or as soon as one fails
+     * A failure cancels the others; those still queued on the executor then never run.
+     */
+    private static CompletableFuture<Void> allOrFirstFailure(CompletableFuture<?>... futures) {
+        CompletableFuture<Void> all = CompletableFuture.allOf(futures);
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        all.whenComplete((ignored, failure) -> {
+            if (failure == null) {
+                result.complete(null);
+            }
+        });
+        for (CompletableFuture<?> future : futures) {
+            future.whenComplete((ignored, failure) -> {
+                if (failure != null) {
+                    result.completeExceptionally(failure);
+                }
+            });
+        }
+        result.whenComplete((ignored, failure) -> {
+            if (failure != null) {
+                for (CompletableFuture<?> future : futures) {
+                    future.cancel(false);
+                }
+            }
+        });
+        return result;
+    }
+
+    private static Map<String, Object> error(String message) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("error", message);
+        return response;
+    }
+
+    private static ServiceOverloadedException overloaded() {
+        return new ServiceOverloadedException("Messaging is busy, please retry shortly", 1);
+    }
+}
@@ -1,14 +1,20 @@
 package com.ma.message_apps.service;
 
+import com.ma.message_apps.cache.PresenceRegistry;
 import com.ma.message_apps.dto.UserDto;
 import com.ma.message_apps.entity.User;
 import com.ma.message_apps.enumDto.UserStatus;
+import com.ma.message_apps.event.UserChangedEvent;
 import com.ma.message_apps.exception.ResourceNotFoundException;
+import com.ma.message_apps.exception.ServiceOverloadedException;
 import com.ma.message_apps.mapper.UserConversion;
 import com.ma.message_apps.repository.UserRepository;
+import com.ma.message_apps.security.PasswordHasher;
+import io.micrometer.core.annotation.Timed;
 import jakarta.servlet.http.HttpSession;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.sql.Timestamp;
@@ -21,15 +27,27 @@ import java.util.Optional;
  */
 @Service
 @Slf4j
+@Timed("service.invocations")
 public class AuthService {
 
     private final UserRepository userRepository;
     private final UserConversion userConversion;
+    private final PresenceRegistry presenceRegistry;
+    private final PasswordHasher passwordHasher;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public AuthService(UserRepository userRepository, UserConversion userConversion) {
+    public AuthService(
+            UserRepository userRepository,
+            UserConversion userConversion,
+            PresenceRegistry presenceRegistry,
+            PasswordHasher passwordHasher,
+            ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
         this.userConversion = userConversion;
+        this.presenceRegistry = presenceRegistry;
+        this.passwordHasher = passwordHasher;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -38,27 +56,40 @@ public class AuthService {
      * @param userDto User credentials
      * @param session HTTP session
      * @return User data with authentication result
+     * @throws ServiceOverloadedException if the password hashing pool is saturated
      */
     public Map<String, Object> login(UserDto userDto, HttpSession session) {
         Map<String, Object> response = new HashMap<>();
 
         try {
             // Find user by username
-            User user = userRepository.findByUsername(userDto.getUsername())
-                    .orElseThrow(() -> new ResourceNotFoundException("Invalid username or password"));
+            Optional<User> found = userRepository.findByUsername(userDto.getUsername());
+            if (found.isEmpty()) {
+                // Costs a hash like a wrong password, so timing does not reveal unknown usernames
+                passwordHasher.simulateMatch(userDto.getPasswordHash());
+                throw new ResourceNotFoundException("Invalid username or password");
+            }
+            User user = found.get();
 
-            // Basic password verification
-            if (!userDto.getPasswordHash().equals(user.getPasswordHash())) {
+            if (!passwordHasher.matches(userDto.getPasswordHash(), user.getPasswordHash())) {
                 log.warn("Failed login attempt for username: {}", userDto.getUsername());
                 throw new ResourceNotFoundException("Invalid username or password");
             }
 
+            // Legacy plaintext passwords and old cost settings are rehashed with the status update
+            if (passwordHasher.needsRehash(user.getPasswordHash())) {
+                user.setPasswordHash(passwordHasher.hash(userDto.getPasswordHash()));
+            }
+
             // Update user status to online
             user.setStatus(UserStatus.ONLINE);
             userRepository.save(user);
+            presenceRegistry.updateStatus(user.getUserId(), UserStatus.ONLINE);
+            eventPublisher.publishEvent(UserChangedEvent.statusChanged(user.getUserId()));
 
             // Store user in session
             UserDto userDtoResponse = userConversion.toUserDto(user);
+            userDtoResponse.setPasswordHash(null);
             session.setAttribute("loggedInUser", userDtoResponse);
             session.setAttribute("userId", user.getUserId());
             session.setAttribute("username", user.getUsername());
@@ -73,6 +104,8 @@ public class AuthService {
             response.put("success", false);
             response.put("error", e.getMessage());
             log.warn("Failed login attempt for username: {}", userDto.getUsername());
+        } catch (ServiceOverloadedException e) {
+            throw e;
         } catch (Exception e) {
             response.put("success", false);
             response.put("error", "An error occurred during login");
@@ -87,6 +120,7 @@ public class AuthService {
      *
      * @param userDto User registration data
      * @return Registration result
+     * @throws ServiceOverloadedException if the password hashing pool is saturated
      */
     public Map<String, Object> register(UserDto userDto) {
         Map<String, Object> response = new HashMap<>();
@@ -106,21 +140,25 @@ public class AuthService {
                 return response;
             }
 
-            // Create and save user (with plaintext password for now - not secure)
+            // Create and save user
             User user = new User();
             user.setUsername(userDto.getUsername());
-            user.setPasswordHash(userDto.getPasswordHash());
+            user.setPasswordHash(passwordHasher.hash(userDto.getPasswordHash()));
             user.setEmail(userDto.getEmail());
             user.setStatus(UserStatus.OFFLINE);
             user.setCreatedAt(new Timestamp(System.currentTimeMillis()));
 
             User savedUser = userRepository.save(user);
+            eventPublisher.publishEvent(UserChangedEvent.created(
+                    savedUser.getUserId(), savedUser.getUsername(), savedUser.getEmail()));
 
             // Return success response
             response.put("success", true);
             response.put("message", "Registration successful");
             response.put("user", userConversion.toUserDto(savedUser));
             log.info("New user registered: {}", userDto.getUsername());
+        } catch (ServiceOverloadedException e) {
+            throw e;
         } catch (Exception e) {
             response.put("success", false);
             response.put("error", "An error occurred during registration");
@@ -175,6 +213,8 @@ public class AuthService {
                     User user = userOpt.get();
                     user.setStatus(UserStatus.OFFLINE);
                     userRepository.save(user);
+                    presenceRegistry.updateStatus(user.getUserId(), UserStatus.OFFLINE);
+                    eventPublisher.publishEvent(UserChangedEvent.statusChanged(user.getUserId()));
                     log.info("User {} logged out", loggedInUser.getUsername());
                 }
             }
@@ -1,64 +1,160 @@
 package com.ma.message_apps.service;
 
-import com.ma.message_apps.dto.FriendRequestsDto;
+import com.ma.message_apps.cache.PendingRequestCounter;
+import com.ma.message_apps.cache.UserCache;
 import com.ma.message_apps.entity.FriendRequests;
-import com.ma.message_apps.entity.User;
 import com.ma.message_apps.enumDto.FriendStatus;
+import com.ma.message_apps.event.FriendshipChangedEvent;
+import com.ma.message_apps.event.PendingRequestsChangedEvent;
 import com.ma.message_apps.exception.ResourceNotFoundException;
 import com.ma.message_apps.mapper.FriendRequestsConversion;
 import com.ma.message_apps.repository.FriendRequestsRepository;
+import com.ma.message_apps.repository.FriendshipRepository;
 import com.ma.message_apps.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 /**
  * Service for managing friend requests operations
  */
 @Service
 @Slf4j
+@Timed("service.invocations")
 public class FriendRequestService {
 
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_BATCH_SIZE = 500;
+
     private final FriendRequestsRepository friendRequestsRepository;
+    private final FriendshipRepository friendshipRepository;
     private final UserRepository userRepository;
+    private final UserCache userCache;
     private final FriendRequestsConversion friendRequestsConversion;
+    private final PendingRequestCounter pendingRequestCounter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int defaultPageSize;
 
     @Autowired
     public FriendRequestService(
             FriendRequestsRepository friendRequestsRepository,
+            FriendshipRepository friendshipRepository,
             UserRepository userRepository,
-            FriendRequestsConversion friendRequestsConversion) {
+            UserCache userCache,
+            FriendRequestsConversion friendRequestsConversion,
+            PendingRequestCounter pendingRequestCounter,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${app.friend-requests.page-size:20}") int defaultPageSize) {
         this.friendRequestsRepository = friendRequestsRepository;
+        this.friendshipRepository = friendshipRepository;
         this.userRepository = userRepository;
+        this.userCache = userCache;
         this.friendRequestsConversion = friendRequestsConversion;
+        this.pendingRequestCounter = pendingRequestCounter;
+        this.eventPublisher = eventPublisher;
+        this.defaultPageSize = defaultPageSize;
     }
 
     /**
-     * Get friend requests for a specific user
+     * Get one page of the pending friend requests a user has received, newest first
+     * Pass the returned nextCursor to fetch the following page; it is null on the last page.
      *
      * @param userId User ID
-     * @return List of friend request DTOs
+     * @param cursor Position returned by the previous page, or null for the first page
+     * @param limit Page size (capped at 100)
+     * @return Map containing success status, requests and the next cursor
      */
-    public List<FriendRequestsDto> getFriendRequestsForUser(Integer userId) {
-        log.info("Getting friend requests for user ID: {}", userId);
+    public Map<String, Object> getPendingInbox(Integer userId, String cursor, Integer limit) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            if (userId == null) {
+                response.put("success", false);
+                response.put("error", "Invalid user ID");
+                return response;
+            }
+
+            int pageSize = limit == null || limit <= 0 ? defaultPageSize : Math.min(limit, MAX_PAGE_SIZE);
+            // Fetch one extra row to learn whether another page follows
+            PageRequest page = PageRequest.of(0, pageSize + 1);
+
+            List<Map<String, Object>> requests;
+            if (cursor == null || cursor.isBlank()) {
+                requests = friendRequestsRepository.findPendingPage(userId, page);
+            } else {
+                String[] position = cursor.split("_", 2);
+                if (position.length != 2) {
+                    response.put("success", false);
+                    response.put("error", "Invalid cursor");
+                    return response;
+                }
+                requests = friendRequestsRepository.findPendingPageAfter(
+                        userId,
+                        new Timestamp(Long.parseLong(position[0])),
+                        Integer.parseInt(position[1]),
+                        page);
+            }
+
+            String nextCursor = null;
+            if (requests.size() > pageSize) {
+                requests = requests.subList(0, pageSize);
+                Map<String, Object> last = requests.get(pageSize - 1);
+                nextCursor = ((Timestamp) last.get("createdAt")).getTime() + "_" + last.get("requestId");
+            } else if (cursor == null || cursor.isBlank()) {
+                // The whole inbox fits in this page, so its size is the exact pending count
+                pendingRequestCounter.reset(userId, requests.size());
+            }
+
+            response.put("success", true);
+            response.put("requests", requests);
+            response.put("nextCursor", nextCursor);
+
+        } catch (NumberFormatException e) {
+            response.put("success", false);
+            response.put("error", "Invalid cursor");
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", "Error retrieving friend requests: " + e.getMessage());
+            log.error("Error retrieving friend requests", e);
+        }
 
-        // Validate user exists
-        userRepository.findById(userId)
-            .orElseThrow(() -> new ResourceNotFoundException("User not found with ID: " + userId));
+        return response;
+    }
 
-        List<FriendRequests> requests = friendRequestsRepository.findByReceiverUserIdAndStatus(userId, FriendStatus.PENDING);
+    /**
+     * Get the number of pending friend requests a user has received
+     * Served from memory after the first call for each user.
+     *
+     * @param userId User ID
+     * @return Map containing success status and count
+     */
+    public Map<String, Object> getPendingCount(Integer userId) {
+        Map<String, Object> response = new HashMap<>();
 
-        return requests.stream()
-            .map(friendRequestsConversion::fromEntity)
-            .collect(Collectors.toList());
+        if (userId == null) {
+            response.put("success", false);
+            response.put("error", "Invalid user ID");
+            return response;
+        }
+
+        response.put("success", true);
+        response.put("count", pendingRequestCounter.getPendingCount(userId));
+        return response;
     }
 
     /**
@@ -83,12 +179,14 @@ public class FriendRequestService {
             }
 
             // Check if sender exists
-            User fromUser = userRepository.findById(fromUserId)
-                .orElseThrow(() -> new ResourceNotFoundException("Sender not found with ID: " + fromUserId));
+            if (!userCache.exists(fromUserId)) {
+                throw new ResourceNotFoundException("Sender not found with ID: " + fromUserId);
+            }
 
             // Check if recipient exists
-            User toUser = userRepository.findById(toUserId)
-                .orElseThrow(() -> new ResourceNotFoundException("Recipient not found with ID: " + toUserId));
+            if (!userCache.exists(toUserId)) {
+                throw new ResourceNotFoundException("Recipient not found with ID: " + toUserId);
+            }
 
             // Check if request already exists
             Optional<FriendRequests> existingRequest = friendRequestsRepository
@@ -109,6 +207,7 @@ public class FriendRequestService {
                     request.setStatus(FriendStatus.PENDING);
                     request.setCreatedAt(new Timestamp(System.currentTimeMillis()));
                     friendRequestsRepository.save(request);
+                    eventPublisher.publishEvent(PendingRequestsChangedEvent.created(toUserId));
                     response.put("success", true);
                     response.put("message", "Friend request sent again");
                     return response;
@@ -122,12 +221,13 @@ public class FriendRequestService {
 
             // Create new friend request
             FriendRequests friendRequest = new FriendRequests();
-            friendRequest.setSender(fromUser);
-            friendRequest.setReceiver(toUser);
+            friendRequest.setSender(userRepository.getReferenceById(fromUserId));
+            friendRequest.setReceiver(userRepository.getReferenceById(toUserId));
             friendRequest.setStatus(FriendStatus.PENDING);
             friendRequest.setCreatedAt(new Timestamp(System.currentTimeMillis()));
 
             friendRequestsRepository.save(friendRequest);
+            eventPublisher.publishEvent(PendingRequestsChangedEvent.created(toUserId));
 
             response.put("success", true);
             response.put("message", "Friend request sent successfully");
@@ -174,6 +274,10 @@ public class FriendRequestService {
             request.setCreatedAt(new Timestamp(System.currentTimeMillis()));
 
             friendRequestsRepository.save(request);
+            friendshipRepository.insertFriendship(request.getSender().getUserId(), request.getReceiver().getUserId());
+            eventPublisher.publishEvent(FriendshipChangedEvent.added(
+                    request.getSender().getUserId(), request.getReceiver().getUserId()));
+            eventPublisher.publishEvent(PendingRequestsChangedEvent.resolved(request.getReceiver().getUserId()));
 
             response.put("success", true);
             response.put("message", "Friend request accepted");
@@ -220,6 +324,7 @@ public class FriendRequestService {
             request.setCreatedAt(new Timestamp(System.currentTimeMillis()));
 
             friendRequestsRepository.save(request);
+            eventPublisher.publishEvent(PendingRequestsChangedEvent.resolved(request.getReceiver().getUserId()));
 
             response.put("success", true);
             response.put("message", "Friend request rejected");
@@ -263,6 +368,7 @@ public class FriendRequestService {
 
             // Delete the request
             friendRequestsRepository.delete(request);
+            eventPublisher.publishEvent(PendingRequestsChangedEvent.resolved(request.getReceiver().getUserId()));
 
             response.put("success", true);
             response.put("message", "Friend request cancelled");
@@ -279,4 +385,119 @@ public class FriendRequestService {
 
         return response;
     }
+
+    /**
+     * Accept several friend requests in one transaction
+     *
+     * @param requestIds Friend request IDs
+     * @return Map containing success status and a result per request
+     */
+    @Transactional
+    public Map<String, Object> acceptFriendRequests(List<Integer> requestIds) {
+        return applyBatch(requestIds, FriendStatus.ACCEPTED);
+    }
+
+    /**
+     * Reject several friend requests in one transaction
+     *
+     * @param requestIds Friend request IDs
+     * @return Map containing success status and a result per request
+     */
+    @Transactional
+    public Map<String, Object> rejectFriendRequests(List<Integer> requestIds) {
+        return applyBatch(requestIds, FriendStatus.REJECTED);
+    }
+
+    /**
+     * Cancel several sent friend requests in one transaction
+     *
+     * @param requestIds Friend request IDs
+     * @return Map containing success status and a result per request
+     */
+    @Transactional
+    public Map<String, Object> cancelFriendRequests(List<Integer> requestIds) {
+        return applyBatch(requestIds, null);
+    }
+
+    /**
+     * Apply one status change to a batch of pending requests
+     * The requests are read and locked with one query, changed with one set-based UPDATE or
+     * DELETE, and listeners are notified once for the whole batch.
+     *
+     * @param requestIds Friend request IDs
+     * @param newStatus Status to set, or null to delete the requests
+     */
+    private Map<String, Object> applyBatch(List<Integer> requestIds, FriendStatus newStatus) {
+        Map<String, Object> response = new HashMap<>();
+        String action = newStatus == FriendStatus.ACCEPTED ? "accepted"
+                : newStatus == FriendStatus.REJECTED ? "rejected" : "cancelled";
+
+        if (requestIds == null || requestIds.isEmpty()) {
+            response.put("success", false);
+            response.put("error", "No request IDs given");
+            return response;
+        }
+        if (requestIds.size() > MAX_BATCH_SIZE) {
+            response.put("success", false);
+            response.put("error", "At most " + MAX_BATCH_SIZE + " requests can be changed at once");
+            return response;
+        }
+
+        Set<Integer> uniqueIds = new LinkedHashSet<>(requestIds);
+        uniqueIds.remove(null);
+        log.info("Batch {} of {} friend requests", action, uniqueIds.size());
+
+        Map<Integer, FriendRequests> found = new HashMap<>();
+        for (FriendRequests request : friendRequestsRepository.findAllByIdForUpdate(uniqueIds)) {
+            found.put(request.getRequestId(), request);
+        }
+
+        List<Integer> pendingIds = new ArrayList<>();
+        List<FriendshipChangedEvent.Edge> edges = new ArrayList<>();
+        Map<Integer, Integer> pendingDeltas = new HashMap<>();
+        List<Map<String, Object>> results = new ArrayList<>(uniqueIds.size());
+
+        for (Integer requestId : uniqueIds) {
+            FriendRequests request = found.get(requestId);
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("requestId", requestId);
+
+            if (request == null) {
+                result.put("success", false);
+                result.put("error", "Friend request not found");
+            } else if (request.getStatus() != FriendStatus.PENDING) {
+                result.put("success", false);
+                result.put("error", "Friend request is not pending");
+            } else {
+                Integer senderId = request.getSender().getUserId();
+                Integer receiverId = request.getReceiver().getUserId();
+                pendingIds.add(requestId);
+                pendingDeltas.merge(receiverId, -1, Integer::sum);
+                if (newStatus == FriendStatus.ACCEPTED) {
+                    edges.add(new FriendshipChangedEvent.Edge(senderId, receiverId));
+                }
+                result.put("success", true);
+                result.put("status", action);
+            }
+            results.add(result);
+        }
+
+        if (!pendingIds.isEmpty()) {
+            if (newStatus == null) {
+                friendRequestsRepository.deletePending(pendingIds);
+            } else {
+                friendRequestsRepository.updatePendingStatus(pendingIds, newStatus);
+            }
+            if (!edges.isEmpty()) {
+                friendshipRepository.insertFriendshipsForRequests(pendingIds);
+                eventPublisher.publishEvent(new FriendshipChangedEvent(FriendshipChangedEvent.Change.ADDED, edges));
+            }
+            eventPublisher.publishEvent(new PendingRequestsChangedEvent(pendingDeltas));
+        }
+
+        response.put("success", true);
+        response.put("updated", pendingIds.size());
+        response.put("results", results);
+        return response;
+    }
 }
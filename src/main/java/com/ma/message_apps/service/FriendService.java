@@ -1,40 +1,79 @@
 package com.ma.message_apps.service;
 
+import com.ma.message_apps.cache.FriendshipGraph;
+import com.ma.message_apps.cache.PresenceRegistry;
+import com.ma.message_apps.cache.UserCache;
+import com.ma.message_apps.cache.UnreadCounter;
+import com.ma.message_apps.dto.FriendPresenceDto;
 import com.ma.message_apps.dto.UserDto;
+import com.ma.message_apps.entity.FriendRequests;
 import com.ma.message_apps.entity.User;
+import com.ma.message_apps.enumDto.FriendStatus;
+import com.ma.message_apps.enumDto.UserStatus;
+import com.ma.message_apps.event.FriendshipChangedEvent;
+import com.ma.message_apps.event.PendingRequestsChangedEvent;
 import com.ma.message_apps.exception.ResourceNotFoundException;
 import com.ma.message_apps.mapper.UserConversion;
 import com.ma.message_apps.repository.FriendRequestsRepository;
+import com.ma.message_apps.repository.FriendshipRepository;
 import com.ma.message_apps.repository.UserRepository;
+import com.ma.message_apps.util.SortedIntArrays;
+import io.micrometer.core.annotation.Timed;
 import jakarta.servlet.http.HttpSession;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Service for handling friend-related operations
  */
 @Service
 @Slf4j
+@Timed("service.invocations")
 public class FriendService {
 
     private final FriendRequestsRepository friendRequestsRepository;
+    private final FriendshipRepository friendshipRepository;
     private final UserRepository userRepository;
     private final UserConversion userConversion;
+    private final FriendshipGraph friendshipGraph;
+    private final UserCache userCache;
+    private final PresenceRegistry presenceRegistry;
+    private final UnreadCounter unreadCounter;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
     public FriendService(
             FriendRequestsRepository friendRequestsRepository,
+            FriendshipRepository friendshipRepository,
             UserRepository userRepository,
-            UserConversion userConversion) {
+            UserConversion userConversion,
+            FriendshipGraph friendshipGraph,
+            UserCache userCache,
+            PresenceRegistry presenceRegistry,
+            UnreadCounter unreadCounter,
+            ApplicationEventPublisher eventPublisher) {
         this.friendRequestsRepository = friendRequestsRepository;
+        this.friendshipRepository = friendshipRepository;
         this.userRepository = userRepository;
         this.userConversion = userConversion;
+        this.friendshipGraph = friendshipGraph;
+        this.userCache = userCache;
+        this.presenceRegistry = presenceRegistry;
+        this.unreadCounter = unreadCounter;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -45,6 +84,21 @@ public class FriendService {
      * @return Map containing success status and friends list
      */
     public Map<String, Object> getFriendsList(HttpSession session, Integer specifiedUserId) {
+        return getFriendsList(session, specifiedUserId, false);
+    }
+
+    /**
+     * Get user's friend list, optionally with each friend's presence and unread count
+     * Presence and unread counts come from in-memory structures, so enriching the
+     * list adds no queries per friend.
+     *
+     * @param session HTTP session
+     * @param specifiedUserId Optional user ID (if null, uses session user)
+     * @param includePresence Whether to embed status, last-seen time and unread count
+     * @return Map containing success status and friends list
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getFriendsList(HttpSession session, Integer specifiedUserId, boolean includePresence) {
         Map<String, Object> response = new HashMap<>();
         List<UserDto> friendsList = new ArrayList<>();
 
@@ -67,16 +121,25 @@ public class FriendService {
             }
 
             // Validate user exists
-            User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with ID: " + userId));
+            if (!userCache.exists(userId)) {
+                throw new ResourceNotFoundException("User not found with ID: " + userId);
+            }
 
-            // Get friends from repository
-            List<User> friends = friendRequestsRepository.findAcceptedFriends(userId);
+            // Get friends from the friendship graph (or the repository while it loads)
+            List<User> friends = findFriends(userId);
 
             if (friends == null) {
                 friends = new ArrayList<>();
             }
 
+            if (includePresence) {
+                List<FriendPresenceDto> presenceList = toPresenceList(userId, friends);
+                response.put("success", true);
+                response.put("friends", presenceList);
+                log.info("Retrieved {} friends with presence for user ID: {}", presenceList.size(), userId);
+                return response;
+            }
+
             // Convert to DTOs - using a safer approach to handle potential nulls
             for (User friend : friends) {
                 if (friend != null) {
@@ -109,6 +172,114 @@ public class FriendService {
         return response;
     }
 
+    private List<FriendPresenceDto> toPresenceList(Integer userId, List<User> friends) {
+        Map<Integer, AtomicInteger> unread = unreadCounter.getUnreadCounts(userId);
+        List<FriendPresenceDto> presenceList = new ArrayList<>(friends.size());
+
+        for (User friend : friends) {
+            if (friend == null) {
+                continue;
+            }
+            PresenceRegistry.Presence presence = presenceRegistry.get(friend.getUserId());
+            UserStatus status = presence != null ? presence.getStatus()
+                    : friend.getStatus() != null ? friend.getStatus() : UserStatus.OFFLINE;
+            LocalDateTime lastSeen = presence != null
+                    ? LocalDateTime.ofInstant(Instant.ofEpochMilli(presence.getLastSeenMillis()), ZoneId.systemDefault())
+                    : null;
+            AtomicInteger unreadCount = unread.get(friend.getUserId());
+
+            presenceList.add(new FriendPresenceDto(
+                    friend.getUserId(),
+                    friend.getUsername(),
+                    friend.getEmail(),
+                    status.name().toLowerCase(),
+                    lastSeen,
+                    unreadCount != null ? unreadCount.get() : 0));
+        }
+        return presenceList;
+    }
+
+    /**
+     * Get the friends of a user
+     * Friend IDs come from the in-memory friendship graph once it is loaded,
+     * falling back to the friendships edge table until then.
+     *
+     * @param userId User ID
+     * @return List of friend entities
+     */
+    @Transactional(readOnly = true)
+    public List<User> findFriends(Integer userId) {
+        int[] friendIds = getFriendIds(userId);
+        if (friendIds.length == 0) {
+            return new ArrayList<>();
+        }
+        List<Integer> ids = new ArrayList<>(friendIds.length);
+        for (int friendId : friendIds) {
+            ids.add(friendId);
+        }
+        return userRepository.findAllById(ids);
+    }
+
+    /**
+     * Get the friends two users have in common
+     *
+     * @param userId The viewing user ID
+     * @param otherUserId The user whose profile is being viewed
+     * @param limit Maximum number of mutual friends to return (count is always complete)
+     * @return Map containing success status, mutual friend count and list
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getMutualFriends(Integer userId, Integer otherUserId, Integer limit) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            if (userId == null || otherUserId == null) {
+                response.put("success", false);
+                response.put("error", "Invalid user IDs");
+                return response;
+            }
+
+            int[] mutualIds = SortedIntArrays.intersect(getFriendIds(userId), getFriendIds(otherUserId));
+            int shown = limit == null || limit < 0 ? mutualIds.length : Math.min(limit, mutualIds.length);
+
+            List<Integer> ids = new ArrayList<>(shown);
+            for (int i = 0; i < shown; i++) {
+                ids.add(mutualIds[i]);
+            }
+            List<UserDto> mutualFriends = new ArrayList<>(shown);
+            if (!ids.isEmpty()) {
+                for (User friend : userRepository.findAllById(ids)) {
+                    UserDto dto = userConversion.toUserDto(friend);
+                    dto.setPasswordHash(null);
+                    mutualFriends.add(dto);
+                }
+            }
+
+            response.put("success", true);
+            response.put("count", mutualIds.length);
+            response.put("mutualFriends", mutualFriends);
+
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", "Error retrieving mutual friends: " + e.getMessage());
+            log.error("Error retrieving mutual friends", e);
+        }
+
+        return response;
+    }
+
+    /**
+     * Get a user's friend IDs in ascending order
+     */
+    private int[] getFriendIds(Integer userId) {
+        if (friendshipGraph.isReady()) {
+            return friendshipGraph.getFriendIds(userId);
+        }
+        return friendshipRepository.findFriendIds(userId).stream()
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
     /**
      * Check if users are friends
      *
@@ -117,25 +288,66 @@ public class FriendService {
      * @return true if users are friends, false otherwise
      */
     public boolean areFriends(Integer userId1, Integer userId2) {
+        if (userId1 == null || userId2 == null) {
+            return false;
+        }
         try {
-            List<User> friendsOfUser1 = friendRequestsRepository.findAcceptedFriends(userId1);
-            if (friendsOfUser1 == null) {
-                return false;
+            if (friendshipGraph.isReady()) {
+                return friendshipGraph.areFriends(userId1, userId2);
             }
-            return friendsOfUser1.stream()
-                .anyMatch(user -> user != null && user.getUserId() != null && user.getUserId().equals(userId2));
+            return friendshipRepository.existsFriendship(userId1, userId2);
         } catch (Exception e) {
             log.error("Error checking friendship: " + e.getMessage());
             return false;
         }
     }
 
+    /**
+     * Remove an accepted friendship between two users
+     *
+     * @param userId The user removing the friend
+     * @param friendId The friend to remove
+     * @return Map containing success status and result details
+     */
+    @Transactional
+    public Map<String, Object> unfriend(Integer userId, Integer friendId) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            if (userId == null || friendId == null) {
+                response.put("success", false);
+                response.put("error", "Invalid user IDs");
+                return response;
+            }
+
+            friendRequestsRepository.deleteAcceptedBetweenUsers(userId, friendId);
+            int deleted = friendshipRepository.deleteFriendship(userId, friendId);
+
+            if (deleted > 0) {
+                eventPublisher.publishEvent(FriendshipChangedEvent.removed(userId, friendId));
+                response.put("success", true);
+                response.put("message", "Friend removed");
+            } else {
+                response.put("success", false);
+                response.put("error", "Users are not friends");
+            }
+
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", "Error removing friend: " + e.getMessage());
+            log.error("Error removing friend", e);
+        }
+
+        return response;
+    }
+
     /**
      * Find a user by username or email
      *
      * @param usernameOrEmail The username or email to search for
      * @return Map containing success status and user data if found
      */
+    @Transactional(readOnly = true)
     public Map<String, Object> findUserByUsernameOrEmail(String usernameOrEmail) {
         Map<String, Object> response = new HashMap<>();
 
@@ -201,11 +413,12 @@ public class FriendService {
             }
 
             // Check if users exist
-            User fromUser = userRepository.findById(fromUserId)
-                .orElseThrow(() -> new ResourceNotFoundException("Sender user not found"));
-
-            User toUser = userRepository.findById(toUserId)
-                .orElseThrow(() -> new ResourceNotFoundException("Recipient user not found"));
+            if (!userCache.exists(fromUserId)) {
+                throw new ResourceNotFoundException("Sender user not found");
+            }
+            if (!userCache.exists(toUserId)) {
+                throw new ResourceNotFoundException("Recipient user not found");
+            }
 
             // Check if users are already friends
             if (areFriends(fromUserId, toUserId)) {
@@ -226,6 +439,7 @@ public class FriendService {
             boolean requestCreated = friendRequestsRepository.createFriendRequest(fromUserId, toUserId);
 
             if (requestCreated) {
+                eventPublisher.publishEvent(PendingRequestsChangedEvent.created(toUserId));
                 response.put("success", true);
                 response.put("message", "Friend request sent successfully");
             } else {
@@ -246,52 +460,13 @@ public class FriendService {
         return response;
     }
 
-    /**
-     * Get pending friend requests for a user
-     *
-     * @param userId The user ID to get requests for
-     * @return Map containing success status and list of requests
-     */
-    public Map<String, Object> getFriendRequests(Integer userId) {
-        Map<String, Object> response = new HashMap<>();
-
-        try {
-            // Validate user ID
-            if (userId == null) {
-                response.put("success", false);
-                response.put("error", "Invalid user ID");
-                return response;
-            }
-
-            // Check if user exists
-            userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with ID: " + userId));
-
-            // Get friend requests
-            List<Map<String, Object>> requests = friendRequestsRepository.findPendingRequestsForUser(userId);
-
-            response.put("success", true);
-            response.put("requests", requests);
-
-        } catch (ResourceNotFoundException e) {
-            response.put("success", false);
-            response.put("error", e.getMessage());
-            log.warn(e.getMessage());
-        } catch (Exception e) {
-            response.put("success", false);
-            response.put("error", "Error retrieving friend requests: " + e.getMessage());
-            log.error("Error retrieving friend requests", e);
-        }
-
-        return response;
-    }
-
     /**
      * Accept a friend request
      *
      * @param requestId The ID of the friend request to accept
      * @return Map containing success status and result details
      */
+    @Transactional
     public Map<String, Object> acceptFriendRequest(Integer requestId) {
         Map<String, Object> response = new HashMap<>();
 
@@ -303,10 +478,20 @@ public class FriendService {
                 return response;
             }
 
+            Optional<FriendRequests> request = friendRequestsRepository.findById(requestId);
+
             // Update the request status in the database
-            boolean updated = friendRequestsRepository.updateFriendRequestStatus(requestId, com.ma.message_apps.enumDto.FriendStatus.ACCEPTED);
+            boolean updated = request.isPresent()
+                    && friendRequestsRepository.updateFriendRequestStatus(requestId, FriendStatus.ACCEPTED);
 
             if (updated) {
+                Integer senderId = request.get().getSender().getUserId();
+                Integer receiverId = request.get().getReceiver().getUserId();
+                friendshipRepository.insertFriendship(senderId, receiverId);
+                eventPublisher.publishEvent(FriendshipChangedEvent.added(senderId, receiverId));
+                if (request.get().getStatus() == FriendStatus.PENDING) {
+                    eventPublisher.publishEvent(PendingRequestsChangedEvent.resolved(receiverId));
+                }
                 response.put("success", true);
                 response.put("message", "Friend request accepted");
             } else {
@@ -329,6 +514,7 @@ public class FriendService {
      * @param requestId The ID of the friend request to reject
      * @return Map containing success status and result details
      */
+    @Transactional
     public Map<String, Object> rejectFriendRequest(Integer requestId) {
         Map<String, Object> response = new HashMap<>();
 
@@ -340,10 +526,24 @@ public class FriendService {
                 return response;
             }
 
+            Optional<FriendRequests> request = friendRequestsRepository.findById(requestId);
+
             // Update the request status in the database
-            boolean updated = friendRequestsRepository.updateFriendRequestStatus(requestId, com.ma.message_apps.enumDto.FriendStatus.REJECTED);
+            boolean updated = request.isPresent()
+                    && friendRequestsRepository.updateFriendRequestStatus(requestId, FriendStatus.REJECTED);
 
             if (updated) {
+                // Rejecting an accepted request ends the friendship
+                Integer senderId = request.get().getSender().getUserId();
+                Integer receiverId = request.get().getReceiver().getUserId();
+                if (request.get().getStatus() == FriendStatus.ACCEPTED
+                        && !friendRequestsRepository.existsAcceptedBetweenUsers(senderId, receiverId)) {
+                    friendshipRepository.deleteFriendship(senderId, receiverId);
+                    eventPublisher.publishEvent(FriendshipChangedEvent.removed(senderId, receiverId));
+                }
+                if (request.get().getStatus() == FriendStatus.PENDING) {
+                    eventPublisher.publishEvent(PendingRequestsChangedEvent.resolved(receiverId));
+                }
                 response.put("success", true);
                 response.put("message", "Friend request rejected");
             } else {
@@ -0,0 +1,330 @@
+package com.ma.message_apps.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ma.message_apps.cache.FriendshipGraph;
+import com.ma.message_apps.dto.UserDto;
+import com.ma.message_apps.entity.User;
+import com.ma.message_apps.event.FriendshipChangedEvent;
+import com.ma.message_apps.event.FriendshipGraphLoadedEvent;
+import com.ma.message_apps.event.ListenerOrder;
+import com.ma.message_apps.mapper.UserConversion;
+import com.ma.message_apps.repository.UserRepository;
+import com.ma.message_apps.util.SortedIntArrays;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * Service for "people you may know" suggestions
+ * Non-friends are ranked by the number of mutual friends, computed over the in-memory
+ * friendship graph. Results are cached per user, up to {@code app.suggestions.cache-max-size}
+ * users; a fork/join batch fills the cache once the graph is loaded, and friendship changes
+ * invalidate only the users whose friend-of-friend counts can change, which are then
+ * recomputed on their next request.
+ */
+@Service
+@Slf4j
+@Timed("service.invocations")
+public class FriendSuggestionService {
+
+    private static final int BATCH_THRESHOLD = 256;
+
+    private final FriendshipGraph friendshipGraph;
+    private final UserRepository userRepository;
+    private final UserConversion userConversion;
+    private final int maxSuggestions;
+    private final boolean batchOnStartup;
+    private final ForkJoinPool batchPool;
+
+    private final Cache<Integer, Suggestions> cache;
+    // Bumped on every friendship change, before invalidating, so results computed against an
+    // older graph are not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    @Autowired
+    public FriendSuggestionService(
+            FriendshipGraph friendshipGraph,
+            UserRepository userRepository,
+            UserConversion userConversion,
+            @Value("${app.suggestions.max-results:20}") int maxSuggestions,
+            @Value("${app.suggestions.batch-on-startup:true}") boolean batchOnStartup,
+            @Value("${app.suggestions.parallelism:0}") int parallelism,
+            @Value("${app.suggestions.cache-max-size:100000}") long cacheMaxSize) {
+        this.friendshipGraph = friendshipGraph;
+        this.userRepository = userRepository;
+        this.userConversion = userConversion;
+        this.maxSuggestions = maxSuggestions;
+        this.batchOnStartup = batchOnStartup;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .build();
+        this.batchPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batchPool.shutdownNow();
+    }
+
+    /**
+     * Get friend suggestions for a user
+     *
+     * @param userId User ID
+     * @param limit Maximum number of suggestions (capped by app.suggestions.max-results)
+     * @return Map containing success status and ranked suggestions
+     */
+    public Map<String, Object> getSuggestions(Integer userId, Integer limit) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            if (userId == null) {
+                response.put("success", false);
+                response.put("error", "Invalid user ID");
+                return response;
+            }
+
+            if (!friendshipGraph.isReady()) {
+                response.put("success", true);
+                response.put("suggestions", List.of());
+                response.put("message", "Suggestions are not available yet");
+                return response;
+            }
+
+            Suggestions suggestions = getOrCompute(userId);
+            int count = Math.min(suggestions.size(), limit == null || limit <= 0 ? maxSuggestions : limit);
+
+            List<Integer> ids = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                ids.add(suggestions.userIds[i]);
+            }
+            Map<Integer, User> users = new HashMap<>();
+            for (User user : userRepository.findAllById(ids)) {
+                users.put(user.getUserId(), user);
+            }
+
+            List<Map<String, Object>> results = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                User user = users.get(suggestions.userIds[i]);
+                if (user == null) {
+                    continue;
+                }
+                UserDto dto = userConversion.toUserDto(user);
+                dto.setPasswordHash(null);
+
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("user", dto);
+                entry.put("mutualFriends", suggestions.mutualCounts[i]);
+                results.add(entry);
+            }
+
+            response.put("success", true);
+            response.put("suggestions", results);
+
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", "Error retrieving friend suggestions: " + e.getMessage());
+            log.error("Error retrieving friend suggestions", e);
+        }
+
+        return response;
+    }
+
+    /**
+     * Recompute suggestions for every user in parallel over a snapshot of the graph
+     */
+    public void recomputeAll() {
+        long startGeneration = generation.get();
+        int[][] graph = friendshipGraph.snapshot();
+        Map<Integer, Suggestions> results = new ConcurrentHashMap<>();
+
+        batchPool.invoke(new BatchTask(graph, 1, graph.length, results));
+
+        // Anything that changed while the batch ran will be recomputed on demand instead
+        results.forEach((userId, suggestions) -> putIfCurrent(userId, suggestions, startGeneration));
+        if (generation.get() == startGeneration) {
+            log.info("Computed friend suggestions for {} users", results.size());
+        } else {
+            log.info("Friendships changed during suggestion batch; some results discarded");
+        }
+    }
+
+    @EventListener
+    public void onGraphLoaded(FriendshipGraphLoadedEvent event) {
+        if (batchOnStartup) {
+            recomputeAll();
+        }
+    }
+
+    /**
+     * Invalidate the users whose suggestions depend on the changed friendships
+     * Runs after the graph has applied the change, so a suggestion computed under the new
+     * generation never ranks against the old friendships.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(ListenerOrder.DERIVE)
+    public void onFriendshipChanged(FriendshipChangedEvent event) {
+        generation.incrementAndGet();
+        for (FriendshipChangedEvent.Edge edge : event.getEdges()) {
+            invalidateAround(edge.getUserId());
+            invalidateAround(edge.getFriendId());
+        }
+    }
+
+    private void invalidateAround(int userId) {
+        cache.invalidate(userId);
+        for (int friendId : friendshipGraph.getFriendIds(userId)) {
+            cache.invalidate(friendId);
+        }
+    }
+
+    private Suggestions getOrCompute(int userId) {
+        Suggestions cached = cache.getIfPresent(userId);
+        if (cached != null) {
+            return cached;
+        }
+
+        long startGeneration = generation.get();
+        Suggestions computed = rank(userId, friendshipGraph::getFriendIds, maxSuggestions);
+        putIfCurrent(userId, computed, startGeneration);
+        return computed;
+    }
+
+    /**
+     * Cache suggestions unless friendships changed since they were computed
+     * The check and the insert are one step under the entry's lock, so an invalidation either
+     * sees the new entry and removes it, or has already moved the generation on.
+     */
+    private void putIfCurrent(int userId, Suggestions suggestions, long computedGeneration) {
+        cache.asMap().compute(userId, (id, existing) ->
+                generation.get() == computedGeneration ? suggestions : existing);
+    }
+
+    /**
+     * Rank the friends-of-friends of a user by mutual friend count
+     * Friend-of-friend IDs are gathered into one array and sorted, so each run of equal IDs
+     * is a candidate whose run length is its number of mutual friends.
+     *
+     * @param userId User ID
+     * @param friendsOf Sorted friend IDs for any user
+     * @param limit Maximum number of results
+     * @return Suggestions ordered by mutual friend count, then user ID
+     */
+    static Suggestions rank(int userId, IntFunction<int[]> friendsOf, int limit) {
+        int[] friends = friendsOf.apply(userId);
+        if (friends.length == 0 || limit <= 0) {
+            return Suggestions.EMPTY;
+        }
+
+        int total = 0;
+        int[][] neighbourhoods = new int[friends.length][];
+        for (int i = 0; i < friends.length; i++) {
+            neighbourhoods[i] = friendsOf.apply(friends[i]);
+            total += neighbourhoods[i].length;
+        }
+        int[] candidates = new int[total];
+        int offset = 0;
+        for (int[] neighbourhood : neighbourhoods) {
+            System.arraycopy(neighbourhood, 0, candidates, offset, neighbourhood.length);
+            offset += neighbourhood.length;
+        }
+        Arrays.sort(candidates);
+
+        int[] topIds = new int[limit];
+        int[] topCounts = new int[limit];
+        int size = 0;
+        for (int i = 0; i < candidates.length; ) {
+            int candidate = candidates[i];
+            int run = i;
+            while (run < candidates.length && candidates[run] == candidate) {
+                run++;
+            }
+            int mutual = run - i;
+            i = run;
+
+            if (candidate == userId || SortedIntArrays.contains(friends, candidate)) {
+                continue;
+            }
+            if (size == limit && mutual <= topCounts[size - 1]) {
+                continue;
+            }
+
+            // Insert keeping counts descending; candidates arrive in ascending ID order so ties stay ordered
+            int pos = size < limit ? size++ : limit - 1;
+            while (pos > 0 && topCounts[pos - 1] < mutual) {
+                topIds[pos] = topIds[pos - 1];
+                topCounts[pos] = topCounts[pos - 1];
+                pos--;
+            }
+            topIds[pos] = candidate;
+            topCounts[pos] = mutual;
+        }
+
+        return new Suggestions(Arrays.copyOf(topIds, size), Arrays.copyOf(topCounts, size));
+    }
+
+    /**
+     * Ranked suggestion IDs with their mutual friend counts
+     */
+    static final class Suggestions {
+        static final Suggestions EMPTY = new Suggestions(new int[0], new int[0]);
+
+        final int[] userIds;
+        final int[] mutualCounts;
+
+        Suggestions(int[] userIds, int[] mutualCounts) {
+            this.userIds = userIds;
+            this.mutualCounts = mutualCounts;
+        }
+
+        int size() {
+            return userIds.length;
+        }
+    }
+
+    private final class BatchTask extends RecursiveAction {
+        private final int[][] graph;
+        private final int from;
+        private final int to;
+        private final Map<Integer, Suggestions> results;
+
+        BatchTask(int[][] graph, int from, int to, Map<Integer, Suggestions> results) {
+            this.graph = graph;
+            this.from = from;
+            this.to = to;
+            this.results = results;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BATCH_THRESHOLD) {
+                for (int userId = from; userId < to; userId++) {
+                    if (graph[userId].length > 0) {
+                        results.put(userId, rank(userId, id -> graph[id], maxSuggestions));
+                    }
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new BatchTask(graph, from, mid, results), new BatchTask(graph, mid, to, results));
+        }
+    }
+}
@@ -1,26 +1,38 @@
 package com.ma.message_apps.service;
 
+import com.ma.message_apps.cache.ResourceVersions;
+import com.ma.message_apps.cache.UnreadCounter;
+import com.ma.message_apps.cache.UserCache;
+import com.ma.message_apps.datasource.ReadYourWritesTracker;
+import com.ma.message_apps.dto.CompactMessageDto;
+import com.ma.message_apps.dto.CompactMessageListDto;
 import com.ma.message_apps.dto.MessageDto;
 import com.ma.message_apps.dto.UserDto;
-import com.ma.message_apps.entity.Message;
 import com.ma.message_apps.entity.User;
+import com.ma.message_apps.event.MessageSentEvent;
 import com.ma.message_apps.exception.ResourceNotFoundException;
-import com.ma.message_apps.mapper.MessageConversion;
+import com.ma.message_apps.exception.UnauthorizedAccessException;
 import com.ma.message_apps.mapper.UserConversion;
 import com.ma.message_apps.repository.FriendRequestsRepository;
-import com.ma.message_apps.repository.MessageRepository;
+import com.ma.message_apps.repository.MessageStore;
 import com.ma.message_apps.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.Timestamp;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -28,26 +40,47 @@ import java.util.stream.Collectors;
  */
 @Service
 @Slf4j
+@Timed("service.invocations")
 public class MessagingService {
 
+    static final String NOT_FRIENDS_ERROR = "Not authorized to message a user who is not a friend";
+
     private final UserRepository userRepository;
     private final FriendRequestsRepository friendRequestsRepository;
-    private final MessageRepository messageRepository;
+    private final MessageStore messageStore;
     private final UserConversion userConversion;
-    private final MessageConversion messageConversion;
+    private final FriendService friendService;
+    private final UnreadCounter unreadCounter;
+    private final UserCache userCache;
+    private final ResourceVersions resourceVersions;
+    private final ReadYourWritesTracker readYourWrites;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean requireFriendship;
 
     @Autowired
     public MessagingService(
             UserRepository userRepository,
             FriendRequestsRepository friendRequestsRepository,
-            MessageRepository messageRepository,
+            MessageStore messageStore,
             UserConversion userConversion,
-            MessageConversion messageConversion) {
+            FriendService friendService,
+            UnreadCounter unreadCounter,
+            UserCache userCache,
+            ResourceVersions resourceVersions,
+            ReadYourWritesTracker readYourWrites,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${app.messaging.require-friendship:true}") boolean requireFriendship) {
         this.userRepository = userRepository;
         this.friendRequestsRepository = friendRequestsRepository;
-        this.messageRepository = messageRepository;
+        this.messageStore = messageStore;
         this.userConversion = userConversion;
-        this.messageConversion = messageConversion;
+        this.friendService = friendService;
+        this.unreadCounter = unreadCounter;
+        this.userCache = userCache;
+        this.resourceVersions = resourceVersions;
+        this.readYourWrites = readYourWrites;
+        this.eventPublisher = eventPublisher;
+        this.requireFriendship = requireFriendship;
     }
 
     /**
@@ -57,14 +90,16 @@ public class MessagingService {
      * @param session HTTP session for authorization
      * @return List of user DTOs representing friends
      */
+    @Transactional(readOnly = true)
     public List<UserDto> getFriends(Integer userId, HttpSession session) {
         log.info("Service: Retrieving friends list for user ID: {}", userId);
 
         // Validate user exists
-        userRepository.findById(userId)
-            .orElseThrow(() -> new ResourceNotFoundException("User not found with ID: " + userId));
+        if (!userCache.exists(userId)) {
+            throw new ResourceNotFoundException("User not found with ID: " + userId);
+        }
 
-        List<User> friends = friendRequestsRepository.findAcceptedFriends(userId);
+        List<User> friends = friendService.findFriends(userId);
         return friends.stream()
             .map(userConversion::toUserDto)
             .collect(Collectors.toList());
@@ -72,6 +107,8 @@ public class MessagingService {
 
     /**
      * Get messages between two users
+     * When the viewer is one of the two users, messages they received in this
+     * conversation are marked as read.
      *
      * @param userId1 First user ID
      * @param userId2 Second user ID
@@ -85,26 +122,37 @@ public class MessagingService {
             HttpSession session,
             HttpServletRequest request) {
         log.info("Service: Retrieving messages between users {} and {}", userId1, userId2);
-
-        // Validate both users exist
-        User user1 = userRepository.findById(userId1)
-            .orElseThrow(() -> new ResourceNotFoundException("User not found with ID: " + userId1));
-
-        User user2 = userRepository.findById(userId2)
-            .orElseThrow(() -> new ResourceNotFoundException("User not found with ID: " + userId2));
+        openConversation(userId1, userId2, session);
 
         // Get messages in both directions
-        List<Message> messages = messageRepository.findMessagesBetweenUsers(userId1, userId2);
+        return toMessageDtos(messageStore.findConversation(userId1, userId2));
+    }
 
-        return messages.stream()
-            .map(messageConversion::toMessageDto)
-            .collect(Collectors.toList());
+    /**
+     * Get messages between two users in the compact format
+     * Messages are selected straight into {@link CompactMessageDto}s without loading entities,
+     * and the two users come from the user cache. Marks messages read like
+     * {@link #getMessagesBetweenUsers}.
+     *
+     * @param userId1 First user ID
+     * @param userId2 Second user ID
+     * @param session HTTP session for authorization
+     * @return Messages with a dictionary of the users they reference
+     */
+    public CompactMessageListDto getCompactMessagesBetweenUsers(Integer userId1, Integer userId2, HttpSession session) {
+        log.info("Service: Retrieving compact messages between users {} and {}", userId1, userId2);
+        openConversation(userId1, userId2, session);
+        return toCompactList(messageStore.findConversation(userId1, userId2));
     }
 
     /**
      * Send a message from one user to another
+     * The sender is the authenticated session user; a send without one is rejected, and
+     * fromUserId, when given, must match it. Both users are validated from the
+     * user cache and the friendship graph, and the message row is inserted with foreign key
+     * references, so a send normally costs a single INSERT.
      *
-     * @param fromUserId Sender user ID
+     * @param fromUserId Sender user ID (optional; must match the session user when given)
      * @param toUserId Recipient user ID
      * @param content Message content
      * @param session HTTP session for authorization
@@ -121,7 +169,8 @@ public class MessagingService {
         Map<String, Object> response = new HashMap<>();
 
         try {
-            log.info("Service: Sending message from user {} to user {}", fromUserId, toUserId);
+            Integer senderId = resolveSenderId(fromUserId, session);
+            log.info("Service: Sending message from user {} to user {}", senderId, toUserId);
 
             // Validate content
             if (content == null || content.trim().isEmpty()) {
@@ -130,38 +179,25 @@ public class MessagingService {
                 return response;
             }
 
-            // Get sender user
-            User fromUser = userRepository.findById(fromUserId)
-                .orElseThrow(() -> new ResourceNotFoundException("Sender not found with ID: " + fromUserId));
-
-            // Get recipient user
-            User toUser = userRepository.findById(toUserId)
-                .orElseThrow(() -> new ResourceNotFoundException("Recipient not found with ID: " + toUserId));
+            // Validate both users exist; the message only needs references to them
+            if (!userCache.exists(senderId)) {
+                throw new ResourceNotFoundException("Sender not found with ID: " + senderId);
+            }
+            if (toUserId == null || !userCache.exists(toUserId)) {
+                throw new ResourceNotFoundException("Recipient not found with ID: " + toUserId);
+            }
 
-            // Verify these users are friends (optional based on your requirements)
-            /*
-            boolean areFriends = !friendRequestsRepository
-                .findAcceptedFriendship(fromUserId, toUserId).isEmpty();
-            if (!areFriends) {
+            // Verify these users are friends
+            if (requireFriendship && !friendService.areFriends(senderId, toUserId)) {
                 response.put("success", false);
-                response.put("error", "Cannot send message to a non-friend user");
+                response.put("error", NOT_FRIENDS_ERROR);
                 return response;
             }
-            */
-
-            // Create and save message
-            Message message = new Message();
-            message.setSender(fromUser);
-            message.setReceiver(toUser);
-            message.setMessageText(content);
-            message.setCreatedAt(new Timestamp(System.currentTimeMillis()));
-
-            Message savedMessage = messageRepository.save(message);
 
             response.put("success", true);
-            response.put("message", messageConversion.toMessageDto(savedMessage));
+            response.put("message", persistMessage(senderId, toUserId, content));
 
-        } catch (ResourceNotFoundException e) {
+        } catch (UnauthorizedAccessException | ResourceNotFoundException e) {
             response.put("success", false);
             response.put("error", e.getMessage());
             log.warn(e.getMessage());
@@ -174,6 +210,51 @@ public class MessagingService {
         return response;
     }
 
+    /**
+     * Work out who is sending a message
+     *
+     * @param fromUserId Sender user ID from the request (optional; must match the session user when given)
+     * @param session HTTP session for authorization
+     * @return The session user
+     * @throws UnauthorizedAccessException if there is no session user, or fromUserId names another user
+     */
+    public Integer resolveSenderId(Integer fromUserId, HttpSession session) {
+        Integer sessionUserId = (Integer) session.getAttribute("userId");
+        if (sessionUserId == null) {
+            throw new UnauthorizedAccessException("Unauthorized: no authenticated user");
+        }
+        if (fromUserId != null && !fromUserId.equals(sessionUserId)) {
+            throw new UnauthorizedAccessException("Not authorized to send messages as another user");
+        }
+        return sessionUserId;
+    }
+
+    /**
+     * Store a message between two validated users
+     * The message is stored by ID, neither user is loaded.
+     *
+     * @return The stored message, built from IDs so serializing it does not load either user
+     */
+    @Transactional
+    public Map<String, Object> persistMessage(int senderId, int toUserId, String content) {
+        Timestamp createdAt = new Timestamp(System.currentTimeMillis());
+        CompactMessageDto saved = messageStore.insert(senderId, toUserId, content, createdAt);
+        eventPublisher.publishEvent(new MessageSentEvent(saved.getMessageId(), senderId, toUserId));
+
+        Map<String, Object> sent = new LinkedHashMap<>();
+        sent.put("messageId", saved.getMessageId());
+        sent.put("senderId", senderId);
+        sent.put("receiverId", toUserId);
+        sent.put("messageText", saved.getMessageText());
+        sent.put("isRead", saved.getIsRead());
+        sent.put("createdAt", createdAt);
+        return sent;
+    }
+
+    public boolean isFriendshipRequired() {
+        return requireFriendship;
+    }
+
     /**
      * Get all messages for a user (both sent and received)
      *
@@ -182,6 +263,7 @@ public class MessagingService {
      * @param request HTTP request for logging
      * @return List of message DTOs
      */
+    @Transactional(readOnly = true)
     public List<MessageDto> getAllMessagesForUser(
             Integer userId,
             HttpSession session,
@@ -189,13 +271,88 @@ public class MessagingService {
         log.info("Service: Retrieving all messages for user {}", userId);
 
         // Validate user exists
-        User user = userRepository.findById(userId)
-            .orElseThrow(() -> new ResourceNotFoundException("User not found with ID: " + userId));
+        if (!userCache.exists(userId)) {
+            throw new ResourceNotFoundException("User not found with ID: " + userId);
+        }
+
+        return toMessageDtos(messageStore.findForUser(userId));
+    }
+
+    /**
+     * Get all messages for a user (both sent and received) in the compact format
+     *
+     * @param userId User ID
+     * @return Messages with a dictionary of the users they reference
+     */
+    @Transactional(readOnly = true)
+    public CompactMessageListDto getCompactMessagesForUser(Integer userId) {
+        log.info("Service: Retrieving all compact messages for user {}", userId);
+
+        if (!userCache.exists(userId)) {
+            throw new ResourceNotFoundException("User not found with ID: " + userId);
+        }
+        return toCompactList(messageStore.findForUser(userId));
+    }
+
+    private void openConversation(Integer userId1, Integer userId2, HttpSession session) {
+        // Validate both users exist
+        if (!userCache.exists(userId1)) {
+            throw new ResourceNotFoundException("User not found with ID: " + userId1);
+        }
+        if (!userCache.exists(userId2)) {
+            throw new ResourceNotFoundException("User not found with ID: " + userId2);
+        }
 
-        List<Message> messages = messageRepository.findBySenderUserIdOrReceiverUserId(userId, userId);
+        Integer viewerId = (Integer) session.getAttribute("userId");
+        if (viewerId != null && (viewerId.equals(userId1) || viewerId.equals(userId2))) {
+            markConversationRead(viewerId, viewerId.equals(userId1) ? userId2 : userId1);
+        }
+    }
 
+    private List<MessageDto> toMessageDtos(List<CompactMessageDto> messages) {
+        // Users are loaded once each rather than once per message
+        Set<Integer> userIds = new HashSet<>();
+        for (CompactMessageDto message : messages) {
+            userIds.add(message.getSenderId());
+            userIds.add(message.getReceiverId());
+        }
+        Map<Integer, User> users = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getUserId, user -> user));
         return messages.stream()
-            .map(messageConversion::toMessageDto)
-            .collect(Collectors.toList());
+                .map(message -> new MessageDto(
+                        message.getMessageId(),
+                        users.get(message.getSenderId()),
+                        users.get(message.getReceiverId()),
+                        message.getMessageText(),
+                        message.getIsRead(),
+                        message.getCreatedAt() != null ? new Timestamp(message.getCreatedAt()) : null))
+                .collect(Collectors.toList());
+    }
+
+    private CompactMessageListDto toCompactList(List<CompactMessageDto> messages) {
+        Map<Integer, CompactMessageListDto.UserRef> users = new HashMap<>();
+        for (CompactMessageDto message : messages) {
+            addUserRef(users, message.getSenderId());
+            addUserRef(users, message.getReceiverId());
+        }
+        return new CompactMessageListDto(messages, users);
+    }
+
+    private void addUserRef(Map<Integer, CompactMessageListDto.UserRef> users, Integer userId) {
+        if (!users.containsKey(userId)) {
+            users.put(userId, userCache.get(userId)
+                    .map(user -> new CompactMessageListDto.UserRef(user.getUsername(), user.getStatus()))
+                    .orElse(null));
+        }
+    }
+
+    private void markConversationRead(Integer recipientId, Integer senderId) {
+        // The in-memory count avoids an UPDATE on every poll of an already-read conversation
+        if (unreadCounter.getUnreadCount(recipientId, senderId) > 0) {
+            messageStore.markConversationRead(senderId, recipientId);
+            unreadCounter.markRead(recipientId, senderId);
+            resourceVersions.conversationRead(recipientId, senderId);
+            readYourWrites.recordWrite(recipientId);
+        }
     }
 }
@@ -1,15 +1,28 @@
 package com.ma.message_apps.service;
 
+import com.ma.message_apps.cache.PresenceRegistry;
+import com.ma.message_apps.cache.UserCounter;
+import com.ma.message_apps.cache.UserSearchIndex;
 import com.ma.message_apps.dto.UserDto;
 import com.ma.message_apps.dto.UserStatusDto;
+import com.ma.message_apps.dto.UserSummaryDto;
 import com.ma.message_apps.entity.User;
 import com.ma.message_apps.enumDto.UserStatus;
+import com.ma.message_apps.event.UserChangedEvent;
 import com.ma.message_apps.exception.ResourceNotFoundException;
+import com.ma.message_apps.exception.ServiceOverloadedException;
 import com.ma.message_apps.mapper.UserConversion;
 import com.ma.message_apps.repository.UserRepository;
+import com.ma.message_apps.security.PasswordHasher;
+import com.ma.message_apps.util.SearchTermIndex;
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.Timestamp;
 import java.util.*;
@@ -20,15 +33,39 @@ import java.util.stream.Collectors;
  */
 @Service
 @Slf4j
+@Timed("service.invocations")
 public class UserService {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final UserRepository userRepository;
     private final UserConversion userConversion;
+    private final PresenceRegistry presenceRegistry;
+    private final UserSearchIndex userSearchIndex;
+    private final UserCounter userCounter;
+    private final PasswordHasher passwordHasher;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int maxSearchResults;
 
     @Autowired
-    public UserService(UserRepository userRepository, UserConversion userConversion) {
+    public UserService(
+            UserRepository userRepository,
+            UserConversion userConversion,
+            PresenceRegistry presenceRegistry,
+            UserSearchIndex userSearchIndex,
+            UserCounter userCounter,
+            PasswordHasher passwordHasher,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${app.search.max-results:20}") int maxSearchResults) {
         this.userRepository = userRepository;
         this.userConversion = userConversion;
+        this.presenceRegistry = presenceRegistry;
+        this.userSearchIndex = userSearchIndex;
+        this.userCounter = userCounter;
+        this.passwordHasher = passwordHasher;
+        this.eventPublisher = eventPublisher;
+        this.maxSearchResults = maxSearchResults;
     }
 
     /**
@@ -37,6 +74,7 @@ public class UserService {
      * @param userId User ID
      * @return User DTO
      */
+    @Transactional(readOnly = true)
     public UserDto getUserById(Integer userId) {
         log.info("Getting user by ID: {}", userId);
         User user = userRepository.findById(userId)
@@ -50,6 +88,7 @@ public class UserService {
      * @param query Search query (username or email)
      * @return Map containing search results
      */
+    @Transactional(readOnly = true)
     public Map<String, Object> findUsersByUsernameOrEmail(String query) {
         Map<String, Object> response = new HashMap<>();
 
@@ -78,8 +117,10 @@ public class UserService {
                 return response;
             }
 
-            // Do partial search
-            List<User> users = userRepository.findByUsernameContainingOrEmailContaining(query, query);
+            // Do partial search, from the in-memory index once it is loaded
+            List<User> users = userSearchIndex.isReady()
+                    ? findIndexedUsers(query, maxSearchResults)
+                    : userRepository.findByUsernameContainingOrEmailContaining(query, query);
 
             if (users.isEmpty()) {
                 response.put("success", false);
@@ -103,36 +144,110 @@ public class UserService {
     }
 
     /**
-     * Get all users (with optional pagination)
+     * Search users by username or email
+     * Results are ranked: exact matches, then prefixes, then substrings, then near misses.
      *
-     * @param page Page number
-     * @param size Page size
-     * @return List of user DTOs
+     * @param query Search text
+     * @param limit Maximum number of results (capped by app.search.max-results)
+     * @return Map containing success status and ranked users
      */
-    public List<UserDto> getAllUsers(Integer page, Integer size) {
-        log.info("Getting all users with pagination - page: {}, size: {}", page, size);
-
-        List<User> users;
+    @Transactional(readOnly = true)
+    public Map<String, Object> searchUsers(String query, Integer limit) {
+        Map<String, Object> response = new HashMap<>();
 
-        if (page != null && size != null) {
-            // Implement pagination logic here if needed
-            // This is a simplified version
-            users = userRepository.findAll();
-            int fromIndex = page * size;
-            int toIndex = Math.min(fromIndex + size, users.size());
+        try {
+            if (query == null || query.trim().isEmpty()) {
+                response.put("success", false);
+                response.put("error", "Search query cannot be empty");
+                return response;
+            }
 
-            if (fromIndex < users.size()) {
-                users = users.subList(fromIndex, toIndex);
+            int max = limit == null || limit <= 0 ? maxSearchResults : Math.min(limit, maxSearchResults);
+            List<User> users;
+            if (userSearchIndex.isReady()) {
+                users = findIndexedUsers(query, max);
             } else {
-                users = Collections.emptyList();
+                users = userRepository.findByUsernameContainingOrEmailContaining(query.trim(), query.trim());
+                users = users.subList(0, Math.min(max, users.size()));
             }
-        } else {
-            users = userRepository.findAll();
+
+            List<UserDto> results = new ArrayList<>(users.size());
+            for (User user : users) {
+                UserDto dto = userConversion.toUserDto(user);
+                dto.setPasswordHash(null);
+                results.add(dto);
+            }
+
+            response.put("success", true);
+            response.put("users", results);
+
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", "Error searching for users: " + e.getMessage());
+            log.error("Error searching for users", e);
         }
 
-        return users.stream()
-                .map(userConversion::toUserDto)
-                .collect(Collectors.toList());
+        return response;
+    }
+
+    /**
+     * Load the users matched by the search index, keeping the index's ranking
+     */
+    private List<User> findIndexedUsers(String query, int limit) {
+        List<SearchTermIndex.Hit> hits = userSearchIndex.search(query, limit);
+        List<Integer> ids = new ArrayList<>(hits.size());
+        for (SearchTermIndex.Hit hit : hits) {
+            ids.add(hit.getId());
+        }
+
+        Map<Integer, User> byId = new HashMap<>();
+        for (User user : userRepository.findAllById(ids)) {
+            byId.put(user.getUserId(), user);
+        }
+
+        List<User> users = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            User user = byId.get(id);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return users;
+    }
+
+    /**
+     * Get a page of users in ID order
+     * Pass the returned nextAfterId to fetch the following page; it is null on the last page.
+     *
+     * @param afterId Last user ID of the previous page, or null for the first page
+     * @param size Page size (capped at 100)
+     * @return Map containing success status, users, the next position and the total
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getUsersPage(Integer afterId, Integer size) {
+        log.info("Getting users after ID: {}, size: {}", afterId, size);
+        Map<String, Object> response = new HashMap<>();
+
+        int pageSize = size == null || size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+        // Fetch one extra row to learn whether another page follows
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+
+        List<UserSummaryDto> users = afterId == null
+                ? userRepository.findSummaries(page)
+                : userRepository.findSummariesAfter(afterId, page);
+
+        Integer nextAfterId = null;
+        if (users.size() > pageSize) {
+            users = users.subList(0, pageSize);
+            nextAfterId = users.get(pageSize - 1).getUserId();
+        }
+
+        response.put("success", true);
+        response.put("users", users);
+        response.put("count", users.size());
+        response.put("nextAfterId", nextAfterId);
+        response.put("total", userCounter.getTotal());
+        return response;
     }
 
     /**
@@ -175,13 +290,14 @@ public class UserService {
             }
 
             if (userDto.getPasswordHash() != null && !userDto.getPasswordHash().isEmpty()) {
-                // Encrypt password
-                user.setPasswordHash(userDto.getPasswordHash());
+                user.setPasswordHash(passwordHasher.hash(userDto.getPasswordHash()));
             }
 
             // Update other profile fields as needed
 
             User updatedUser = userRepository.save(user);
+            eventPublisher.publishEvent(UserChangedEvent.updated(
+                    updatedUser.getUserId(), updatedUser.getUsername(), updatedUser.getEmail()));
             response.put("success", true);
             response.put("message", "Profile updated successfully");
             response.put("user", userConversion.toUserDto(updatedUser));
@@ -190,6 +306,8 @@ public class UserService {
             response.put("success", false);
             response.put("error", e.getMessage());
             log.warn(e.getMessage());
+        } catch (ServiceOverloadedException e) {
+            throw e;
         } catch (Exception e) {
             response.put("success", false);
             response.put("error", "Failed to update profile: " + e.getMessage());
@@ -220,6 +338,8 @@ public class UserService {
             // 3. Archive user data for compliance reasons
 
             userRepository.delete(user);
+            presenceRegistry.remove(userId);
+            eventPublisher.publishEvent(UserChangedEvent.deleted(userId));
 
             response.put("success", true);
             response.put("message", "Account deleted successfully");
@@ -248,20 +368,32 @@ public class UserService {
     public UserDto authenticateUser(String username, String password) {
         log.info("Authenticating user: {}", username);
 
-        // Find user by username or email
-        User user = userRepository.findByUsername(username)
-                .orElseGet(() -> userRepository.findByEmail(username)
-                        .orElseThrow(() -> new ResourceNotFoundException("User not found with username/email: " + username)));
+        // Find user by username or email; an unknown user costs a hash and fails like a wrong password
+        Optional<User> found = userRepository.findByUsername(username)
+                .or(() -> userRepository.findByEmail(username));
+        if (found.isEmpty()) {
+            passwordHasher.simulateMatch(password);
+            log.warn("Login attempt for unknown user: {}", username);
+            throw new ResourceNotFoundException("Invalid username or password");
+        }
+        User user = found.get();
 
-        // Validate password (plain text comparison - not secure but removes security dependency)
-        if (!password.equals(user.getPasswordHash())) {
+        if (!passwordHasher.matches(password, user.getPasswordHash())) {
             log.warn("Invalid password attempt for user: {}", username);
             throw new ResourceNotFoundException("Invalid username or password");
         }
 
+        // Legacy plaintext passwords and old cost settings are rehashed on the status update below
+        if (passwordHasher.needsRehash(user.getPasswordHash())) {
+            user.setPasswordHash(passwordHasher.hash(password));
+            log.info("Upgraded stored password hash for user {}", user.getUserId());
+        }
+
         // Update user status to online
         user.setStatus(com.ma.message_apps.enumDto.UserStatus.ONLINE);
         user = userRepository.save(user);
+        presenceRegistry.updateStatus(user.getUserId(), UserStatus.ONLINE);
+        eventPublisher.publishEvent(UserChangedEvent.statusChanged(user.getUserId()));
 
         log.info("User {} authenticated successfully", username);
         return userConversion.toUserDto(user);
@@ -295,16 +427,18 @@ public class UserService {
             throw new RuntimeException("Email already exists");
         }
 
-        // Create new user entity (storing plaintext password - not secure but removes dependencies)
+        // Create new user entity
         User user = new User();
         user.setUsername(userDto.getUsername());
         user.setEmail(userDto.getEmail());
-        user.setPasswordHash(userDto.getPasswordHash());
+        user.setPasswordHash(passwordHasher.hash(userDto.getPasswordHash()));
         user.setCreatedAt(new Timestamp(System.currentTimeMillis()));
         user.setStatus(com.ma.message_apps.enumDto.UserStatus.OFFLINE);
 
         // Save to database
         User savedUser = userRepository.save(user);
+        eventPublisher.publishEvent(UserChangedEvent.created(
+                savedUser.getUserId(), savedUser.getUsername(), savedUser.getEmail()));
 
         return userConversion.toUserDto(savedUser);
     }
@@ -315,6 +449,7 @@ public class UserService {
      * @return UserStatusDto containing the user's status information
      * @throws ResourceNotFoundException if the user is not found
      */
+    @Transactional(readOnly = true)
     public UserStatusDto getUserStatus(Integer userId) throws ResourceNotFoundException {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with ID: " + userId));
@@ -339,6 +474,8 @@ public class UserService {
 
         user.setStatus(status);
         userRepository.save(user);
+        presenceRegistry.updateStatus(userId, status);
+        eventPublisher.publishEvent(UserChangedEvent.statusChanged(userId));
 
         log.info("Updated status for user {}: {}", userId, status);
 
@@ -349,6 +486,7 @@ public class UserService {
      * Get the status of all users
      * @return List of UserStatusDto objects containing status information for all users
      */
+    @Transactional(readOnly = true)
     public List<UserStatusDto> getAllUserStatuses() {
         List<User> users = userRepository.findAll();
 
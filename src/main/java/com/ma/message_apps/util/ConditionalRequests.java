@@ -0,0 +1,50 @@
+package com.ma.message_apps.util;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+
+/**
+ * If-None-Match handling for version-based ETags
+ */
+public final class ConditionalRequests {
+
+    private ConditionalRequests() {
+    }
+
+    /**
+     * Set the ETag of the response and check it against the request's If-None-Match
+     * Responses vary by Accept, since the same version is served as JSON, CBOR or Smile.
+     *
+     * @param request Current request
+     * @param etag ETag of the current version of the resource
+     * @return true if the client's copy is current; the response is then a 304 and the
+     *         handler should return without a body
+     */
+    public static boolean checkNotModified(ServletWebRequest request, String etag) {
+        HttpServletResponse response = request.getResponse();
+        if (response != null) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+        return request.checkNotModified(etag);
+    }
+
+    /**
+     * {@link #checkNotModified} for responses that depend on the authenticated user
+     * Marks the response private and varying by the session cookie and token, so shared
+     * caches do not store it and a browser does not revalidate one user's copy for another.
+     *
+     * @param request Current request
+     * @param etag ETag of the current version of the resource
+     * @return true if the client's copy is current
+     */
+    public static boolean checkNotModifiedForSession(ServletWebRequest request, String etag) {
+        HttpServletResponse response = request.getResponse();
+        if (response != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.empty().cachePrivate().getHeaderValue());
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.COOKIE + ", " + HttpHeaders.AUTHORIZATION);
+        }
+        return checkNotModified(request, etag);
+    }
+}
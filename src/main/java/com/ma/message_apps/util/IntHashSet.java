@@ -0,0 +1,170 @@
+package com.ma.message_apps.util;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Open-addressing hash set of positive ints
+ * Stores values in a flat int[] so membership checks never box.
+ * Not thread-safe; callers are expected to guard access.
+ */
+public class IntHashSet {
+
+    private static final int EMPTY = 0;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private int[] table;
+    private int size;
+    private int resizeAt;
+
+    public IntHashSet() {
+        this(4);
+    }
+
+    public IntHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Add a value
+     *
+     * @param value Positive value to add
+     * @return true if the value was not already present
+     */
+    public boolean add(int value) {
+        checkValue(value);
+        int mask = table.length - 1;
+        int slot = mix(value) & mask;
+        while (table[slot] != EMPTY) {
+            if (table[slot] == value) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = value;
+        if (++size >= resizeAt) {
+            rehash(table.length << 1);
+        }
+        return true;
+    }
+
+    /**
+     * Remove a value using backward-shift deletion, so no tombstones are left behind
+     *
+     * @param value Value to remove
+     * @return true if the value was present
+     */
+    public boolean remove(int value) {
+        if (value <= 0) {
+            return false;
+        }
+        int mask = table.length - 1;
+        int slot = mix(value) & mask;
+        while (table[slot] != value) {
+            if (table[slot] == EMPTY) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (table[next] != EMPTY) {
+            int home = mix(table[next]) & mask;
+            // Move the entry back if its home slot is not between the gap and its current position
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                table[gap] = table[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        table[gap] = EMPTY;
+        size--;
+        return true;
+    }
+
+    public boolean contains(int value) {
+        if (value <= 0) {
+            return false;
+        }
+        int mask = table.length - 1;
+        int slot = mix(value) & mask;
+        int current;
+        while ((current = table[slot]) != EMPTY) {
+            if (current == value) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Visit the values in table order, without copying them, until the visitor returns false
+     *
+     * @return false if the visitor stopped the iteration
+     */
+    public boolean forEachWhile(IntPredicate visitor) {
+        for (int value : table) {
+            if (value != EMPTY && !visitor.test(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copy the values into a new ascending array
+     */
+    public int[] toSortedArray() {
+        int[] values = new int[size];
+        int i = 0;
+        for (int value : table) {
+            if (value != EMPTY) {
+                values[i++] = value;
+            }
+        }
+        Arrays.sort(values);
+        return values;
+    }
+
+    private void rehash(int newCapacity) {
+        int[] old = table;
+        allocate(newCapacity);
+        int mask = table.length - 1;
+        for (int value : old) {
+            if (value != EMPTY) {
+                int slot = mix(value) & mask;
+                while (table[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = value;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        table = new int[capacity];
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int mix(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static void checkValue(int value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException("Only positive values can be stored: " + value);
+        }
+    }
+}
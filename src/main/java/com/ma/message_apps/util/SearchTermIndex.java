@@ -0,0 +1,249 @@
+package com.ma.message_apps.util;
+
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Search index over a username and an email per ID
+ * Lower-cased usernames and emails are kept in one sorted term set, so prefix matches are a
+ * range scan. Trigrams of usernames and email local parts map to posting sets of IDs, so infix
+ * matches intersect a few postings instead of scanning every entry, and near misses are found
+ * by trigram overlap.
+ * Not thread-safe; callers are expected to guard access.
+ */
+public class SearchTermIndex {
+
+    public static final int SCORE_EXACT = 100;
+    public static final int SCORE_USERNAME_PREFIX = 80;
+    public static final int SCORE_EMAIL_PREFIX = 70;
+    public static final int SCORE_USERNAME_INFIX = 50;
+    public static final int SCORE_EMAIL_INFIX = 40;
+    public static final int SCORE_FUZZY = 30;
+
+    private static final char TERM_SEPARATOR = '\u0000';
+    private static final int MIN_PREFIX_SCAN = 64;
+    // Infix candidates checked per query; the smallest posting of a common query can hold most IDs
+    private static final int MAX_INFIX_CANDIDATES = 10_000;
+    // Postings larger than this are too common to tell fuzzy candidates apart
+    private static final int MAX_FUZZY_POSTING = 50_000;
+    private static final double MIN_FUZZY_OVERLAP = 0.5;
+
+    @Value
+    public static class Hit {
+        int id;
+        int score;
+    }
+
+    // ID -> {username, email}, both lower-cased
+    private final Map<Integer, String[]> fields = new HashMap<>();
+    // term + separator + ID, so equal terms of different IDs stay distinct
+    private final NavigableSet<String> terms = new TreeSet<>();
+    private final Map<Long, IntHashSet> trigrams = new HashMap<>();
+
+    /**
+     * Add or replace the entry for an ID
+     */
+    public void put(int id, String username, String email) {
+        remove(id);
+        String name = normalize(username);
+        String mail = normalize(email);
+        fields.put(id, new String[]{name, mail});
+
+        addTerm(name, id);
+        addTerm(mail, id);
+        for (long trigram : trigramsOf(name, localPart(mail))) {
+            trigrams.computeIfAbsent(trigram, key -> new IntHashSet()).add(id);
+        }
+    }
+
+    /**
+     * Remove the entry for an ID
+     *
+     * @return true if the ID was indexed
+     */
+    public boolean remove(int id) {
+        String[] entry = fields.remove(id);
+        if (entry == null) {
+            return false;
+        }
+        terms.remove(entry[0] + TERM_SEPARATOR + id);
+        terms.remove(entry[1] + TERM_SEPARATOR + id);
+        for (long trigram : trigramsOf(entry[0], localPart(entry[1]))) {
+            IntHashSet posting = trigrams.get(trigram);
+            if (posting != null && posting.remove(id) && posting.isEmpty()) {
+                trigrams.remove(trigram);
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        return fields.size();
+    }
+
+    /**
+     * Find the best matches for a query
+     * Exact matches rank first, then username and email prefixes, then infix matches,
+     * then entries sharing most of the query's trigrams; ties go to the shorter username.
+     * Each later stage only runs while earlier ones found fewer than limit hits and none was
+     * exact, and infix matching stops after a bounded number of candidates, so a common query
+     * returns the best of the candidates checked rather than of every entry.
+     *
+     * @param query Search text
+     * @param limit Maximum number of hits
+     * @return Hits ordered best first
+     */
+    public List<Hit> search(String query, int limit) {
+        String q = normalize(query);
+        if (q.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        Map<Integer, Integer> scores = new HashMap<>();
+        collectPrefixMatches(q, Math.max(limit * 4, MIN_PREFIX_SCAN), scores);
+
+        long[] queryTrigrams = trigramsOf(q, "");
+        boolean exact = scores.containsValue(SCORE_EXACT);
+        if (queryTrigrams.length > 0 && !exact && scores.size() < limit) {
+            collectInfixMatches(q, queryTrigrams, Math.max(limit * 4, MIN_PREFIX_SCAN), scores);
+        }
+        if (queryTrigrams.length > 0 && !exact && scores.size() < limit) {
+            collectFuzzyMatches(queryTrigrams, scores);
+        }
+
+        List<Hit> hits = new ArrayList<>(scores.size());
+        scores.forEach((id, score) -> hits.add(new Hit(id, score)));
+        hits.sort(Comparator.comparingInt(Hit::getScore).reversed()
+                .thenComparingInt(hit -> fields.get(hit.getId())[0].length())
+                .thenComparingInt(Hit::getId));
+        return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+    }
+
+    private void collectPrefixMatches(String q, int maxScanned, Map<Integer, Integer> scores) {
+        int scanned = 0;
+        for (String key : terms.subSet(q, true, q + Character.MAX_VALUE, false)) {
+            int separator = key.lastIndexOf(TERM_SEPARATOR);
+            int id = Integer.parseInt(key, separator + 1, key.length(), 10);
+            String[] entry = fields.get(id);
+
+            int score;
+            if (separator == q.length()) {
+                score = SCORE_EXACT;
+            } else if (key.regionMatches(0, entry[0], 0, separator) && separator == entry[0].length()) {
+                score = SCORE_USERNAME_PREFIX;
+            } else {
+                score = SCORE_EMAIL_PREFIX;
+            }
+            scores.merge(id, score, Math::max);
+
+            if (++scanned >= maxScanned) {
+                break;
+            }
+        }
+    }
+
+    private void collectInfixMatches(String q, long[] queryTrigrams, int maxFound, Map<Integer, Integer> scores) {
+        IntHashSet[] postings = new IntHashSet[queryTrigrams.length];
+        for (int i = 0; i < queryTrigrams.length; i++) {
+            postings[i] = trigrams.get(queryTrigrams[i]);
+            if (postings[i] == null) {
+                return;
+            }
+        }
+        Arrays.sort(postings, Comparator.comparingInt(IntHashSet::size));
+
+        int[] checked = new int[1];
+        int[] found = new int[1];
+        postings[0].forEachWhile(id -> {
+            if (++checked[0] > MAX_INFIX_CANDIDATES) {
+                return false;
+            }
+            for (int i = 1; i < postings.length; i++) {
+                if (!postings[i].contains(id)) {
+                    return true;
+                }
+            }
+            // Shared trigrams are necessary but not sufficient, so confirm the substring
+            String[] entry = fields.get(id);
+            if (entry[0].contains(q)) {
+                scores.merge(id, SCORE_USERNAME_INFIX, Math::max);
+            } else if (localPart(entry[1]).contains(q)) {
+                scores.merge(id, SCORE_EMAIL_INFIX, Math::max);
+            } else {
+                return true;
+            }
+            return ++found[0] < maxFound;
+        });
+    }
+
+    private void collectFuzzyMatches(long[] queryTrigrams, Map<Integer, Integer> scores) {
+        Map<Integer, int[]> overlap = new HashMap<>();
+        for (long trigram : queryTrigrams) {
+            IntHashSet posting = trigrams.get(trigram);
+            if (posting == null || posting.size() > MAX_FUZZY_POSTING) {
+                continue;
+            }
+            posting.forEachWhile(id -> {
+                overlap.computeIfAbsent(id, key -> new int[1])[0]++;
+                return true;
+            });
+        }
+
+        overlap.forEach((id, shared) -> {
+            double fraction = (double) shared[0] / queryTrigrams.length;
+            if (fraction >= MIN_FUZZY_OVERLAP && !scores.containsKey(id)) {
+                scores.put(id, (int) Math.round(SCORE_FUZZY * fraction));
+            }
+        });
+    }
+
+    private void addTerm(String term, int id) {
+        if (!term.isEmpty()) {
+            terms.add(term + TERM_SEPARATOR + id);
+        }
+    }
+
+    /**
+     * Distinct trigrams of both strings, each packed into a long
+     */
+    static long[] trigramsOf(String first, String second) {
+        int count = Math.max(0, first.length() - 2) + Math.max(0, second.length() - 2);
+        long[] packed = new long[count];
+        int n = pack(first, packed, 0);
+        n = pack(second, packed, n);
+
+        Arrays.sort(packed, 0, n);
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            if (distinct == 0 || packed[distinct - 1] != packed[i]) {
+                packed[distinct++] = packed[i];
+            }
+        }
+        return distinct == packed.length ? packed : Arrays.copyOf(packed, distinct);
+    }
+
+    private static int pack(String s, long[] out, int offset) {
+        for (int i = 0; i + 3 <= s.length(); i++) {
+            out[offset++] = ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+        }
+        return offset;
+    }
+
+    private static String localPart(String email) {
+        int at = email.indexOf('@');
+        return at < 0 ? email : email.substring(0, at);
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,110 @@
+package com.ma.message_apps.util;
+
+import java.util.Arrays;
+
+/**
+ * Helpers for ascending, duplicate-free int arrays such as friend ID lists
+ */
+public final class SortedIntArrays {
+
+    // Above this size ratio galloping through the larger array beats a linear merge
+    private static final int GALLOP_RATIO = 16;
+
+    private static final int[] EMPTY = new int[0];
+
+    private SortedIntArrays() {
+    }
+
+    /**
+     * Check whether a sorted array contains a value
+     */
+    public static boolean contains(int[] sorted, int value) {
+        return Arrays.binarySearch(sorted, value) >= 0;
+    }
+
+    /**
+     * Intersect two sorted arrays
+     * Uses a linear merge when the arrays have similar sizes and galloping search
+     * through the larger array when one is much smaller than the other.
+     *
+     * @return Ascending array of values present in both inputs
+     */
+    public static int[] intersect(int[] a, int[] b) {
+        if (a.length == 0 || b.length == 0) {
+            return EMPTY;
+        }
+        int[] small = a.length <= b.length ? a : b;
+        int[] large = small == a ? b : a;
+        int[] out = new int[small.length];
+        int size = small.length * GALLOP_RATIO < large.length
+                ? gallopIntersect(small, large, out)
+                : mergeIntersect(small, large, out);
+        return size == out.length ? out : Arrays.copyOf(out, size);
+    }
+
+    /**
+     * Count the values present in both sorted arrays without allocating
+     */
+    public static int intersectionSize(int[] a, int[] b) {
+        if (a.length == 0 || b.length == 0) {
+            return 0;
+        }
+        int[] small = a.length <= b.length ? a : b;
+        int[] large = small == a ? b : a;
+        return small.length * GALLOP_RATIO < large.length
+                ? gallopIntersect(small, large, null)
+                : mergeIntersect(small, large, null);
+    }
+
+    static int mergeIntersect(int[] a, int[] b, int[] out) {
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < a.length && j < b.length) {
+            int x = a[i];
+            int y = b[j];
+            if (x < y) {
+                i++;
+            } else if (x > y) {
+                j++;
+            } else {
+                if (out != null) {
+                    out[size] = x;
+                }
+                size++;
+                i++;
+                j++;
+            }
+        }
+        return size;
+    }
+
+    static int gallopIntersect(int[] small, int[] large, int[] out) {
+        int low = 0;
+        int size = 0;
+        for (int value : small) {
+            // Exponential search for the first bound past value, then binary search inside it
+            int step = 1;
+            int high = low;
+            while (high < large.length && large[high] < value) {
+                low = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            if (low >= large.length) {
+                break;
+            }
+            int index = Arrays.binarySearch(large, low, Math.min(high + 1, large.length), value);
+            if (index >= 0) {
+                if (out != null) {
+                    out[size] = value;
+                }
+                size++;
+                low = index + 1;
+            } else {
+                low = -index - 1;
+            }
+        }
+        return size;
+    }
+}
@@ -79,18 +79,30 @@ const ApiClient = {
     friends: {
         /**
          * Get friends list for the current user
+         * @param {Object} options - Optional settings; include: 'presence' adds status and unread counts
          * @returns {Promise} Friends list
          */
-        getFriendsList() {
-            return ApiClient.request('/api/friends/list');
+        getFriendsList(options = {}) {
+            const query = options.include ? `?include=${encodeURIComponent(options.include)}` : '';
+            return ApiClient.request(`/api/friends/list${query}`);
         },
 
         /**
-         * Get pending friend requests
+         * Get a page of pending friend requests, newest first
+         * @param {string|null} cursor - nextCursor from the previous page, or null for the first page
          * @returns {Promise} Friend requests
          */
-        getFriendRequests() {
-            return ApiClient.request('/api/friends/requests');
+        getFriendRequests(cursor = null) {
+            const query = cursor ? `?cursor=${encodeURIComponent(cursor)}` : '';
+            return ApiClient.request(`/api/friends/requests${query}`);
+        },
+
+        /**
+         * Get the number of pending friend requests
+         * @returns {Promise} Pending request count
+         */
+        getPendingRequestCount() {
+            return ApiClient.request('/api/friends/requests/count');
         },
 
         /**
@@ -153,6 +165,16 @@ const ApiClient = {
             return ApiClient.request(`/api/messages/${currentUserId}/${otherUserId}`);
         },
 
+        /**
+         * Get chat messages in the compact format
+         * @param {number} currentUserId - Current user ID
+         * @param {number} otherUserId - Other user ID
+         * @returns {Promise} Object with messages (sender/receiver IDs, epoch-millis createdAt) and a users dictionary
+         */
+        getCompactChatMessages(currentUserId, otherUserId) {
+            return ApiClient.request(`/api/messages/${currentUserId}/${otherUserId}?format=compact`);
+        },
+
         /**
          * Send a message to another user
          * @param {number} fromUserId - Sender user ID
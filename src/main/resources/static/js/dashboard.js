@@ -396,20 +396,22 @@ document.addEventListener('DOMContentLoaded', function() {
     // --- Friend Requests Dynamic Loading ---
     /**
      * Loads friend requests for the current user
+     * @param {string|null} cursor - Cursor of the next page to append, or null to reload from the first page
      */
-    function loadFriendRequests() {
+    function loadFriendRequests(cursor = null) {
         console.log("Loading friend requests...");
 
         // Clear the table and show loading message
         const tbody = document.getElementById('friend-requests-list');
-        if (tbody) {
-            tbody.innerHTML = '<tr><td colspan="3" class="text-center">Loading friend requests...</td></tr>';
-        } else {
+        if (!tbody) {
             console.error('Friend requests list element not found');
             return;
         }
+        if (!cursor) {
+            tbody.innerHTML = '<tr><td colspan="3" class="text-center">Loading friend requests...</td></tr>';
+        }
 
-        ApiClient.friends.getFriendRequests()
+        ApiClient.friends.getFriendRequests(cursor)
             .then(response => {
                 console.log('Friend requests raw response:', response);
 
@@ -423,11 +425,19 @@ document.addEventListener('DOMContentLoaded', function() {
 
                 console.log('Processed friend requests:', requests);
 
-                // Clear the table before adding new content
-                tbody.innerHTML = '';
+                // Clear the table before adding the first page; later pages are appended
+                if (cursor) {
+                    const loadMoreRow = document.getElementById('friend-requests-load-more');
+                    if (loadMoreRow) {
+                        loadMoreRow.remove();
+                    }
+                } else {
+                    tbody.innerHTML = '';
+                    loadPendingRequestCount();
+                }
 
                 // If no requests, show message
-                if (!requests || requests.length === 0) {
+                if (!cursor && (!requests || requests.length === 0)) {
                     console.log('No friend requests found, showing empty message');
                     tbody.innerHTML = '<tr><td colspan="3" class="text-center">No friend requests yet.</td></tr>';
                     return;
@@ -463,6 +473,14 @@ document.addEventListener('DOMContentLoaded', function() {
                     `;
                     tbody.appendChild(row);
                 });
+
+                if (response && response.nextCursor) {
+                    const loadMoreRow = document.createElement('tr');
+                    loadMoreRow.id = 'friend-requests-load-more';
+                    loadMoreRow.innerHTML = '<td colspan="3" class="text-center"><button class="btn btn-link btn-sm">Load more</button></td>';
+                    loadMoreRow.querySelector('button').addEventListener('click', () => loadFriendRequests(response.nextCursor));
+                    tbody.appendChild(loadMoreRow);
+                }
             })
             .catch(error => {
                 console.error('Error loading friend requests:', error);
@@ -470,6 +488,24 @@ document.addEventListener('DOMContentLoaded', function() {
             });
     }
 
+    /**
+     * Updates the pending friend request badge on the Friend Requests tab
+     */
+    function loadPendingRequestCount() {
+        const badge = document.getElementById('pending-requests-badge');
+        if (!badge) return;
+
+        ApiClient.friends.getPendingRequestCount()
+            .then(response => {
+                const count = response && response.success ? response.count : 0;
+                badge.textContent = count;
+                badge.classList.toggle('d-none', !count);
+            })
+            .catch(error => {
+                console.error('Error loading pending request count:', error);
+            });
+    }
+
     // Accept/Reject actions - Make these globally available
     window.acceptFriendRequest = function(requestId) {
         console.log("Accepting friend request:", requestId);
@@ -593,6 +629,7 @@ document.addEventListener('DOMContentLoaded', function() {
             if (document.getElementById('chat').classList.contains('show')) {
                 console.log("Auto-refreshing contacts list...");
                 loadChatContacts(true); // true means it's an auto-refresh
+                loadPendingRequestCount();
             }
         }, CONTACTS_REFRESH_INTERVAL);
     }
@@ -618,24 +655,8 @@ document.addEventListener('DOMContentLoaded', function() {
         // Remember the currently selected contact ID if this is an auto-refresh
         const previouslySelectedContactId = selectedContactId;
 
-        // First, get the current status of all users
-        ApiClient.user.getAllUserStatuses()
-            .then(statusResponse => {
-                // Create a map of userId -> status
-                const userStatuses = {};
-                if (statusResponse && Array.isArray(statusResponse)) {
-                    statusResponse.forEach(statusInfo => {
-                        if (statusInfo && statusInfo.userId) {
-                            userStatuses[statusInfo.userId] = statusInfo.status || 'offline';
-                        }
-                    });
-                }
-
-                console.log('User statuses loaded:', userStatuses);
-
-                // Now get the friends list
-                return ApiClient.friends.getFriendsList();
-            })
+        // One request returns each friend with status and unread count
+        ApiClient.friends.getFriendsList({ include: 'presence' })
             .then(response => {
                 console.log('Chat contacts response:', response);
 
@@ -663,108 +684,96 @@ document.addEventListener('DOMContentLoaded', function() {
 
                 let onlineCount = 0;
 
-                // For each contact, get their current status
-                const statusPromises = contacts.map(contact =>
-                    ApiClient.user.getStatus(contact.userId)
-                        .then(statusData => {
-                            // Save status to our local store
-                            const status = statusData && statusData.status ? statusData.status : 'offline';
-                            appState.contactStatuses[contact.userId] = status;
-                            return { contact, status };
-                        })
-                        .catch(error => {
-                            console.error(`Error getting status for user ${contact.userId}:`, error);
-                            appState.contactStatuses[contact.userId] = 'offline';
-                            return { contact, status: 'offline' };
-                        })
-                );
+                contacts.forEach(contact => {
+                    const status = contact.status || 'offline';
+                    appState.contactStatuses[contact.userId] = status;
+                    const unreadCount = contact.unreadCount || 0;
 
-                // Once we have all statuses, update the UI
-                Promise.all(statusPromises).then(contactStatuses => {
-                    contactStatuses.forEach(({ contact, status }) => {
-                        if (status === 'online') {
-                            onlineCount++;
-                        }
+                    if (status === 'online') {
+                        onlineCount++;
+                    }
 
-                        const contactName = contact.username || contact.email || `User ${contact.userId}`;
-                        const nameInitial = contactName.charAt(0).toUpperCase();
+                    const contactName = contact.username || contact.email || `User ${contact.userId}`;
+                    const nameInitial = contactName.charAt(0).toUpperCase();
 
-                        // Create modern contact item with status indicator
-                        const item = document.createElement('div');
-                        item.className = 'contact-list-item';
-                        item.setAttribute('data-user-id', contact.userId);
+                    // Create modern contact item with status indicator
+                    const item = document.createElement('div');
+                    item.className = 'contact-list-item';
+                    item.setAttribute('data-user-id', contact.userId);
 
-                        // Mark as active if this is the selected contact (or was previously selected in auto-refresh)
-                        if (contact.userId === (isAutoRefresh ? previouslySelectedContactId : selectedContactId)) {
-                            item.classList.add('active');
-                        }
+                    // Mark as active if this is the selected contact (or was previously selected in auto-refresh)
+                    if (contact.userId === (isAutoRefresh ? previouslySelectedContactId : selectedContactId)) {
+                        item.classList.add('active');
+                    }
 
-                        item.innerHTML = `
-                            <div class="contact-avatar">
-                                ${nameInitial}
-                                <span class="status-badge status-${status}"></span>
+                    item.innerHTML = `
+                        <div class="contact-avatar">
+                            ${nameInitial}
+                            <span class="status-badge status-${status}"></span>
+                        </div>
+                        <div class="contact-info">
+                            <div class="contact-name">
+                                ${contactName}
+                                ${unreadCount > 0 ? `<span class="badge bg-primary rounded-pill ms-1">${unreadCount}</span>` : ''}
                             </div>
-                            <div class="contact-info">
-                                <div class="contact-name">${contactName}</div>
-                                <div class="contact-status">
-                                    <span class="status-indicator status-${status}"></span>
-                                    <span>${status.charAt(0).toUpperCase() + status.slice(1)}</span>
-                                </div>
+                            <div class="contact-status">
+                                <span class="status-indicator status-${status}"></span>
+                                <span>${status.charAt(0).toUpperCase() + status.slice(1)}</span>
                             </div>
-                        `;
+                        </div>
+                    `;
 
-                        item.addEventListener('click', function() {
-                            selectedContactId = contact.userId;
-                            document.getElementById('chat-with-label').textContent = `Chat with ${contactName}`;
+                    item.addEventListener('click', function() {
+                        selectedContactId = contact.userId;
+                        document.getElementById('chat-with-label').textContent = `Chat with ${contactName}`;
 
-                            // Update contact status in the header
-                            const statusIndicator = document.getElementById('contact-status-indicator');
-                            const statusText = document.getElementById('contact-status-text');
+                        // Update contact status in the header
+                        const statusIndicator = document.getElementById('contact-status-indicator');
+                        const statusText = document.getElementById('contact-status-text');
 
-                            if (statusIndicator && statusText) {
-                                const contactStatus = appState.contactStatuses[contact.userId];
-                                statusIndicator.classList.remove('d-none');
+                        if (statusIndicator && statusText) {
+                            const contactStatus = appState.contactStatuses[contact.userId];
+                            statusIndicator.classList.remove('d-none');
 
-                                // Remove all status classes
-                                statusIndicator.querySelector('.status-indicator').className = 'status-indicator';
-                                statusIndicator.querySelector('.status-indicator').classList.add(`status-${contactStatus}`);
+                            // Remove all status classes
+                            statusIndicator.querySelector('.status-indicator').className = 'status-indicator';
+                            statusIndicator.querySelector('.status-indicator').classList.add(`status-${contactStatus}`);
 
-                                statusText.textContent = contactStatus.charAt(0).toUpperCase() + contactStatus.slice(1);
-                            }
-
-                            document.getElementById('chat-form').style.display = 'flex';
-                            loadChatMessages(selectedContactId);
-                            startChatPolling(selectedContactId);
+                            statusText.textContent = contactStatus.charAt(0).toUpperCase() + contactStatus.slice(1);
+                        }
 
-                            // Remove active from all contacts
-                            document.querySelectorAll('.contact-list-item').forEach(el => {
-                                el.classList.remove('active');
-                            });
+                        document.getElementById('chat-form').style.display = 'flex';
+                        loadChatMessages(selectedContactId);
+                        startChatPolling(selectedContactId);
 
-                            // Add active class to this contact
-                            item.classList.add('active');
+                        // Remove active from all contacts
+                        document.querySelectorAll('.contact-list-item').forEach(el => {
+                            el.classList.remove('active');
                         });
 
-                        contactsList.appendChild(item);
+                        // Add active class to this contact
+                        item.classList.add('active');
                     });
 
-                    // Update online count badge
-                    const onlineCountElement = document.getElementById('online-count');
-                    if (onlineCountElement) {
-                        onlineCountElement.textContent = `${onlineCount} online`;
-                    }
+                    contactsList.appendChild(item);
+                });
 
-                    // If this was an auto-refresh and we had a selected contact,
-                    // make sure the chat messages are still loaded and the contact is still marked as selected
-                    if (isAutoRefresh && previouslySelectedContactId) {
-                        // Find the contact in the list
-                        const selectedContactItem = contactsList.querySelector(`.contact-list-item[data-user-id="${previouslySelectedContactId}"]`);
-                        if (selectedContactItem) {
-                            // Add active class to this contact
-                            selectedContactItem.classList.add('active');
-                        }
+                // Update online count badge
+                const onlineCountElement = document.getElementById('online-count');
+                if (onlineCountElement) {
+                    onlineCountElement.textContent = `${onlineCount} online`;
+                }
+
+                // If this was an auto-refresh and we had a selected contact,
+                // make sure the chat messages are still loaded and the contact is still marked as selected
+                if (isAutoRefresh && previouslySelectedContactId) {
+                    // Find the contact in the list
+                    const selectedContactItem = contactsList.querySelector(`.contact-list-item[data-user-id="${previouslySelectedContactId}"]`);
+                    if (selectedContactItem) {
+                        // Add active class to this contact
+                        selectedContactItem.classList.add('active');
                     }
-                });
+                }
             })
             .catch(error => {
                 console.error('Error loading chat contacts:', error);
@@ -838,8 +847,10 @@ document.addEventListener('DOMContentLoaded', function() {
      * @param {number} contactId - The contact ID to load messages for
      */
     function loadChatMessages(contactId) {
-        ApiClient.messages.getChatMessages(window.currentUserId, contactId)
-            .then(messages => {
+        ApiClient.messages.getCompactChatMessages(window.currentUserId, contactId)
+            .then(result => {
+                const messages = result && result.messages;
+                const users = (result && result.users) || {};
                 const chatMessages = document.getElementById('chat-messages');
                 chatMessages.innerHTML = '';
                 if (!messages || !messages.length) {
@@ -847,8 +858,7 @@ document.addEventListener('DOMContentLoaded', function() {
                     return;
                 }
                 messages.forEach(msg => {
-                    // Use sender.userId to determine who sent the message
-                    const isOwn = msg.sender && msg.sender.userId === window.currentUserId;
+                    const isOwn = msg.senderId === window.currentUserId;
                     let date = msg.createdAt;
                     // If date is a string and not null, format it
                     let formattedDate = '';
@@ -860,7 +870,8 @@ document.addEventListener('DOMContentLoaded', function() {
                         }
                     }
                     const messageClass = isOwn ? 'chat-message-own' : 'chat-message-other';
-                    const senderName = msg.sender && msg.sender.username ? msg.sender.username : 'Unknown';
+                    const sender = users[msg.senderId];
+                    const senderName = sender && sender.username ? sender.username : 'Unknown';
                     chatMessages.innerHTML += `
                         <div class="${messageClass}">
                             <div class="chat-message-header">
@@ -0,0 +1,107 @@
+package com.ma.message_apps.repository;
+
+import com.ma.message_apps.dto.CompactMessageDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShardedMessageStoreTest {
+
+    private static final int SHARDS = 3;
+
+    private ShardedMessageStore store;
+
+    @BeforeEach
+    void setUp() {
+        // Fresh in-memory H2 databases per test, queried on the calling thread
+        String run = UUID.randomUUID().toString();
+        List<DataSource> dataSources = new ArrayList<>();
+        for (int shard = 0; shard < SHARDS; shard++) {
+            dataSources.add(new DriverManagerDataSource(
+                    "jdbc:h2:mem:shard" + shard + "-" + run + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                    "sa", ""));
+        }
+        store = new ShardedMessageStore(dataSources, Runnable::run, Duration.ofSeconds(5), true);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        store.close();
+    }
+
+    @Test
+    void placesAConversationOnOneShardWhicheverUserSends() {
+        for (int a = 1; a <= 50; a++) {
+            for (int b = a + 1; b <= 50; b++) {
+                int shard = store.shardOf(a, b);
+                assertThat(shard).isBetween(0, SHARDS - 1).isEqualTo(store.shardOf(b, a));
+            }
+        }
+    }
+
+    @Test
+    void spreadsConversationsOverAllShards() {
+        int[] perShard = new int[SHARDS];
+        for (int userId = 2; userId <= 3_001; userId++) {
+            perShard[store.shardOf(1, userId)]++;
+        }
+
+        // Consecutive user IDs must not pile onto one shard
+        for (int count : perShard) {
+            assertThat(count).isBetween(800, 1_200);
+        }
+    }
+
+    @Test
+    void mergesShardResultsByTimeThenId() {
+        List<CompactMessageDto> merged = ShardedMessageStore.mergeByTime(List.of(
+                List.of(message(3, 100L), message(6, 300L)),
+                List.of(),
+                List.of(message(1, 100L), message(4, 200L), message(7, 400L)),
+                List.of(message(2, null), message(5, 250L))));
+
+        assertThat(merged).extracting(CompactMessageDto::getMessageId).containsExactly(2, 1, 3, 4, 5, 6, 7);
+        assertThat(ShardedMessageStore.mergeByTime(List.of())).isEmpty();
+    }
+
+    @Test
+    void returnsAUsersMessagesFromAllShardsInTimeOrder() {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            int other = 2 + i % 10;
+            boolean outgoing = i % 2 == 0;
+            ids.add(store.insert(outgoing ? 1 : other, outgoing ? other : 1, "m" + i, new Timestamp(1_000L + i)).getMessageId());
+        }
+        store.insert(5, 6, "unrelated", new Timestamp(500L));
+
+        List<CompactMessageDto> messages = store.findForUser(1);
+
+        assertThat(ids).doesNotHaveDuplicates();
+        assertThat(messages).extracting(CompactMessageDto::getMessageId).containsExactlyElementsOf(ids);
+        assertThat(messages).extracting(CompactMessageDto::getMessageText)
+                .containsExactlyElementsOf(messages.stream().map(m -> "m" + (m.getCreatedAt() - 1_000L)).toList());
+    }
+
+    @Test
+    void encodesTheShardInTheMessageId() {
+        CompactMessageDto sent = store.insert(1, 2, "hello", new Timestamp(1_000L));
+
+        assertThat(sent.getMessageId() % SHARDS).isEqualTo(store.shardOf(1, 2));
+        assertThat(store.findConversation(2, 1)).extracting(CompactMessageDto::getMessageId)
+                .containsExactly(sent.getMessageId());
+    }
+
+    private static CompactMessageDto message(int id, Long createdAt) {
+        return new CompactMessageDto(id, 1, 2, "m" + id, false, createdAt);
+    }
+}
@@ -0,0 +1,84 @@
+package com.ma.message_apps.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SessionTokenServiceTest {
+
+    private static final String KEY_A = "a:" + secret('a');
+    private static final String KEY_B = "b:" + secret('b');
+
+    @Test
+    void verifiesTheTokensItIssues() {
+        SessionTokenService service = service(KEY_A, Duration.ofHours(1));
+
+        SessionTokenService.IssuedToken issued = service.issue(42, "ä.lice");
+        Optional<SessionTokenService.TokenClaims> claims = service.verify(issued.getToken());
+
+        assertThat(claims).hasValueSatisfying(verified -> {
+            assertThat(verified.getUserId()).isEqualTo(42);
+            assertThat(verified.getUsername()).isEqualTo("ä.lice");
+            assertThat(verified.getExpiresAt()).isEqualTo(issued.getExpiresAt());
+            assertThat(verified.getKeyId()).isEqualTo("a");
+        });
+    }
+
+    @Test
+    void rejectsTamperedTokens() {
+        SessionTokenService service = service(KEY_A, Duration.ofHours(1));
+        String token = service.issue(42, "alice").getToken();
+
+        String otherUser = token.replaceFirst("^a\\.42\\.", "a.43.");
+        String badSignature = token.substring(0, token.length() - 1) + (token.endsWith("A") ? "B" : "A");
+
+        assertThat(service.verify(otherUser)).isEmpty();
+        assertThat(service.verify(badSignature)).isEmpty();
+        assertThat(service.verify(token + ".extra")).isEmpty();
+        assertThat(service.verify("not-a-token")).isEmpty();
+        assertThat(service.verify(null)).isEmpty();
+    }
+
+    @Test
+    void rejectsExpiredTokens() {
+        SessionTokenService service = service(KEY_A, Duration.ofSeconds(-1));
+
+        assertThat(service.verify(service.issue(42, "alice").getToken())).isEmpty();
+    }
+
+    @Test
+    void verifiesWithEveryConfiguredKeyButSignsWithTheFirst() {
+        SessionTokenService oldService = service(KEY_A, Duration.ofHours(1));
+        SessionTokenService rotated = service(KEY_B + "," + KEY_A, Duration.ofHours(1));
+        SessionTokenService retired = service(KEY_B, Duration.ofHours(1));
+        String oldToken = oldService.issue(42, "alice").getToken();
+
+        assertThat(rotated.verify(oldToken)).isPresent();
+        assertThat(rotated.issue(42, "alice").getToken()).startsWith("b.");
+        assertThat(retired.verify(oldToken)).isEmpty();
+    }
+
+    @Test
+    void rejectsWeakOrMalformedKeys() {
+        String shortSecret = Base64.getEncoder().encodeToString("too short".getBytes(StandardCharsets.UTF_8));
+
+        assertThatThrownBy(() -> service("a:" + shortSecret, Duration.ofHours(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service("a.b:" + secret('a'), Duration.ofHours(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static SessionTokenService service(String keys, Duration ttl) {
+        return new SessionTokenService(new AuthProperties("token", ttl, keys, false));
+    }
+
+    private static String secret(char fill) {
+        return Base64.getEncoder().encodeToString(String.valueOf(fill).repeat(32).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,97 @@
+package com.ma.message_apps.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IntHashSetTest {
+
+    @Test
+    void addsAndRemovesValues() {
+        IntHashSet set = new IntHashSet();
+
+        assertThat(set.add(7)).isTrue();
+        assertThat(set.add(7)).isFalse();
+        assertThat(set.contains(7)).isTrue();
+        assertThat(set.size()).isEqualTo(1);
+
+        assertThat(set.remove(7)).isTrue();
+        assertThat(set.remove(7)).isFalse();
+        assertThat(set.contains(7)).isFalse();
+        assertThat(set.isEmpty()).isTrue();
+    }
+
+    @Test
+    void rejectsValuesThatAreNotPositive() {
+        IntHashSet set = new IntHashSet();
+
+        assertThatThrownBy(() -> set.add(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> set.add(-3)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(set.contains(0)).isFalse();
+        assertThat(set.remove(-3)).isFalse();
+    }
+
+    @Test
+    void keepsCollidingValuesReachableAfterRemovingFromTheMiddleOfAChain() {
+        // Multiples of the table size share a home slot before mixing often enough to build chains;
+        // removing every other value exercises the backward shift across long probe sequences
+        IntHashSet set = new IntHashSet(16);
+        List<Integer> values = new ArrayList<>();
+        for (int i = 1; i <= 200; i++) {
+            values.add(i * 64);
+            set.add(i * 64);
+        }
+        for (int i = 0; i < values.size(); i += 2) {
+            assertThat(set.remove(values.get(i))).isTrue();
+        }
+
+        for (int i = 0; i < values.size(); i++) {
+            assertThat(set.contains(values.get(i))).as("value %d", values.get(i)).isEqualTo(i % 2 == 1);
+        }
+        assertThat(set.size()).isEqualTo(100);
+    }
+
+    @Test
+    void matchesAReferenceSetUnderRandomOperations() {
+        Random random = new Random(42);
+        IntHashSet set = new IntHashSet();
+        TreeSet<Integer> reference = new TreeSet<>();
+
+        for (int i = 0; i < 100_000; i++) {
+            int value = 1 + random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                assertThat(set.remove(value)).isEqualTo(reference.remove(value));
+            } else {
+                assertThat(set.add(value)).isEqualTo(reference.add(value));
+            }
+        }
+
+        assertThat(set.size()).isEqualTo(reference.size());
+        assertThat(set.toSortedArray()).containsExactly(reference.stream().mapToInt(Integer::intValue).toArray());
+        for (int value = 1; value <= 2_000; value++) {
+            assertThat(set.contains(value)).isEqualTo(reference.contains(value));
+        }
+    }
+
+    @Test
+    void visitsEveryValueUntilTheVisitorStops() {
+        IntHashSet set = new IntHashSet();
+        for (int value = 1; value <= 50; value++) {
+            set.add(value);
+        }
+
+        List<Integer> all = new ArrayList<>();
+        assertThat(set.forEachWhile(all::add)).isTrue();
+        assertThat(all).hasSize(50).doesNotHaveDuplicates();
+
+        List<Integer> some = new ArrayList<>();
+        assertThat(set.forEachWhile(value -> some.add(value) && some.size() < 10)).isFalse();
+        assertThat(some).hasSize(10);
+    }
+}
@@ -0,0 +1,95 @@
+package com.ma.message_apps.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchTermIndexTest {
+
+    private SearchTermIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new SearchTermIndex();
+        index.put(1, "alice", "alice@x.io");
+        index.put(2, "alicia", "ali@y.io");
+        index.put(3, "malice", "m@z.io");
+        index.put(4, "bob", "alice.b@x.io");
+    }
+
+    @Test
+    void ranksPrefixesAboveInfixesAndShorterUsernamesFirst() {
+        List<SearchTermIndex.Hit> hits = index.search("ali", 10);
+
+        assertThat(hits).extracting(SearchTermIndex.Hit::getId).containsExactly(1, 2, 4, 3);
+        assertThat(hits).extracting(SearchTermIndex.Hit::getScore).containsExactly(
+                SearchTermIndex.SCORE_USERNAME_PREFIX,
+                SearchTermIndex.SCORE_USERNAME_PREFIX,
+                SearchTermIndex.SCORE_EMAIL_PREFIX,
+                SearchTermIndex.SCORE_USERNAME_INFIX);
+    }
+
+    @Test
+    void exactMatchEndsTheSearchAfterPrefixes() {
+        List<SearchTermIndex.Hit> hits = index.search("alice", 10);
+
+        // "malice" would be an infix match, but an exact hit skips the infix and fuzzy stages
+        assertThat(hits).extracting(SearchTermIndex.Hit::getId).containsExactly(1, 4);
+        assertThat(hits.get(0).getScore()).isEqualTo(SearchTermIndex.SCORE_EXACT);
+        assertThat(hits.get(1).getScore()).isEqualTo(SearchTermIndex.SCORE_EMAIL_PREFIX);
+    }
+
+    @Test
+    void findsInfixMatchesInEmailLocalParts() {
+        index.put(5, "carol", "the.lice.keeper@x.io");
+
+        // Near misses such as "alice" follow with fuzzy scores
+        assertThat(index.search("lice.k", 10))
+                .first().isEqualTo(new SearchTermIndex.Hit(5, SearchTermIndex.SCORE_EMAIL_INFIX));
+    }
+
+    @Test
+    void fallsBackToTrigramOverlapForNearMisses() {
+        List<SearchTermIndex.Hit> hits = index.search("alicee", 10);
+
+        assertThat(hits).extracting(SearchTermIndex.Hit::getId).contains(1, 3);
+        assertThat(hits).allSatisfy(hit -> assertThat(hit.getScore()).isBetween(1, SearchTermIndex.SCORE_FUZZY));
+    }
+
+    @Test
+    void normalizesQueriesAndHonoursTheLimit() {
+        assertThat(index.search("  ALICE ", 1))
+                .containsExactly(new SearchTermIndex.Hit(1, SearchTermIndex.SCORE_EXACT));
+        assertThat(index.search("ali", 2)).hasSize(2);
+        assertThat(index.search("", 10)).isEmpty();
+        assertThat(index.search("ali", 0)).isEmpty();
+    }
+
+    @Test
+    void replacingAndRemovingEntriesUpdatesEveryLookup() {
+        index.put(1, "zed", "zed@x.io");
+        assertThat(index.remove(2)).isTrue();
+        assertThat(index.remove(2)).isFalse();
+
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(index.search("alici", 10)).extracting(SearchTermIndex.Hit::getId).doesNotContain(1, 2);
+        assertThat(index.search("zed", 10))
+                .containsExactly(new SearchTermIndex.Hit(1, SearchTermIndex.SCORE_EXACT));
+    }
+
+    @Test
+    void boundsInfixMatchingOnCommonQueries() {
+        SearchTermIndex large = new SearchTermIndex();
+        for (int id = 1; id <= 20_000; id++) {
+            large.put(id, "member" + id, "member" + id + "@example.com");
+        }
+
+        List<SearchTermIndex.Hit> hits = large.search("ember1", 20);
+
+        assertThat(hits).hasSize(20);
+        assertThat(hits).allSatisfy(hit -> assertThat(hit.getScore()).isEqualTo(SearchTermIndex.SCORE_USERNAME_INFIX));
+    }
+}
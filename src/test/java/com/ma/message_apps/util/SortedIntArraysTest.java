@@ -0,0 +1,72 @@
+package com.ma.message_apps.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SortedIntArraysTest {
+
+    @Test
+    void intersectsArraysOfSimilarSizeByMerging() {
+        int[] a = {1, 3, 5, 7, 9, 11};
+        int[] b = {2, 3, 4, 7, 8, 11, 12};
+
+        assertThat(SortedIntArrays.intersect(a, b)).containsExactly(3, 7, 11);
+        assertThat(SortedIntArrays.intersectionSize(a, b)).isEqualTo(3);
+    }
+
+    @Test
+    void gallopsThroughAMuchLargerArray() {
+        int[] small = {5, 500, 4_999, 10_000, 20_001};
+        int[] large = IntStream.rangeClosed(1, 20_000).toArray();
+
+        assertThat(SortedIntArrays.intersect(small, large)).containsExactly(5, 500, 4_999, 10_000);
+        assertThat(SortedIntArrays.intersect(large, small)).containsExactly(5, 500, 4_999, 10_000);
+        assertThat(SortedIntArrays.intersectionSize(small, large)).isEqualTo(4);
+    }
+
+    @Test
+    void gallopHandlesValuesAtTheEdgesOfTheLargerArray() {
+        int[] large = IntStream.rangeClosed(1, 1_000).map(i -> i * 2).toArray();
+
+        assertThat(SortedIntArrays.gallopIntersect(new int[]{1}, large, new int[1])).isZero();
+        assertThat(SortedIntArrays.gallopIntersect(new int[]{2}, large, new int[1])).isEqualTo(1);
+        assertThat(SortedIntArrays.gallopIntersect(new int[]{2_000}, large, new int[1])).isEqualTo(1);
+        assertThat(SortedIntArrays.gallopIntersect(new int[]{2_001, 2_002}, large, new int[2])).isZero();
+        assertThat(SortedIntArrays.gallopIntersect(new int[]{3, 5, 7}, large, new int[3])).isZero();
+    }
+
+    @Test
+    void returnsAnEmptyArrayWhenEitherInputIsEmpty() {
+        assertThat(SortedIntArrays.intersect(new int[0], new int[]{1, 2})).isEmpty();
+        assertThat(SortedIntArrays.intersect(new int[]{1, 2}, new int[0])).isEmpty();
+        assertThat(SortedIntArrays.intersectionSize(new int[0], new int[0])).isZero();
+    }
+
+    @Test
+    void gallopAndMergeAgreeWithANaiveIntersection() {
+        Random random = new Random(7);
+        for (int round = 0; round < 500; round++) {
+            int[] small = randomSorted(random, 1 + random.nextInt(40), 5_000);
+            int[] large = randomSorted(random, 1 + random.nextInt(3_000), 5_000);
+            int[] expected = Arrays.stream(small).filter(value -> Arrays.binarySearch(large, value) >= 0).toArray();
+
+            int[] merged = new int[small.length];
+            int[] galloped = new int[small.length];
+            int mergedSize = SortedIntArrays.mergeIntersect(small, large, merged);
+            int gallopedSize = SortedIntArrays.gallopIntersect(small, large, galloped);
+
+            assertThat(Arrays.copyOf(merged, mergedSize)).containsExactly(expected);
+            assertThat(Arrays.copyOf(galloped, gallopedSize)).containsExactly(expected);
+            assertThat(SortedIntArrays.intersect(small, large)).containsExactly(expected);
+        }
+    }
+
+    private static int[] randomSorted(Random random, int count, int bound) {
+        return random.ints(count, 1, bound).distinct().sorted().toArray();
+    }
+}